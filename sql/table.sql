@@ -21,8 +21,10 @@ create table if not exists user
     is_delete   bit          not null default 0 comment '是否删除',
     role        tinyint      not null default 0 comment '用户角色（0：普通用户，1：管理员）',
     tags        varchar(512) comment '用户标签列表，以`,`分割',
+    joined_team_count int    not null default 0 comment '已加入的队伍数（含自己创建的队伍）',
     constraint pk_id primary key (id),
-    constraint uk_account unique key (account)
+    constraint uk_account unique key (account),
+    index idx_update_time (update_time)
 ) collate utf8mb4_unicode_ci
   charset utf8mb4 comment '用户表';
 
@@ -50,6 +52,7 @@ create table team
     name           varchar(64) not null comment '队伍名称',
     description    varchar(512) comment '队伍描述',
     max_number     int         not null default 2 comment '队伍最大人数',
+    member_count   int         not null default 0 comment '队伍当前人数',
     expire_time    datetime    not null comment '过期时间',
     user_id        bigint      not null comment '队长id',
     create_user_id bigint      not null comment '创建人id',
@@ -59,7 +62,9 @@ create table team
     create_time    datetime    not null default current_timestamp comment '创建时间',
     update_time    timestamp   not null default current_timestamp on update current_timestamp comment '更新时间',
     is_delete      bit         not null default 0 comment '是否删除',
-    constraint pk_id primary key (id)
+    version        int         not null default 0 comment '版本号（乐观锁）',
+    constraint pk_id primary key (id),
+    index idx_expire_time (expire_time)
 ) collate utf8mb4_unicode_ci
   charset utf8mb4 comment '队伍表';
 
@@ -73,6 +78,32 @@ create table team_user
     create_time datetime  not null default current_timestamp comment '创建时间',
     update_time timestamp not null default current_timestamp on update current_timestamp comment '更新时间',
     is_delete   bit       not null default 0 comment '是否删除',
-    constraint pk_id primary key (id)
+    is_active   tinyint as (if(is_delete = 0, 1, null)) stored comment '未删除时为 1，已删除时为 null，不参与唯一约束',
+    constraint pk_id primary key (id),
+    unique key uk_team_user (team_id, user_id, is_active),
+    index idx_user_id (user_id)
 ) collate utf8mb4_unicode_ci
   charset utf8mb4 comment '队伍~用户关系表';
+
+-- 已有数据升级：添加人数字段后按队伍~用户关系表回填
+-- alter table team add column member_count int not null default 0 comment '队伍当前人数' after max_number;
+-- alter table user add column joined_team_count int not null default 0 comment '已加入的队伍数（含自己创建的队伍）' after tags;
+-- update team t set t.member_count = (select count(*) from team_user tu where tu.team_id = t.id and tu.is_delete = 0);
+-- update user u set u.joined_team_count = (select count(*) from team_user tu where tu.user_id = u.id and tu.is_delete = 0);
+
+-- 已有数据升级：队伍乐观锁版本号
+-- alter table team add column version int not null default 0 comment '版本号（乐观锁）' after is_delete;
+
+-- 已有数据升级：过期队伍清理按过期时间查询
+-- alter table team add index idx_expire_time (expire_time);
+
+-- 已有数据升级：标签、昵称索引按 update_time 增量同步
+-- alter table user add index idx_update_time (update_time);
+
+-- 已有数据升级：按队伍、用户查询及锁定队伍~用户关系
+-- alter table team_user add index idx_team_id (team_id), add index idx_user_id (user_id);
+
+-- 已有数据升级：同一用户在同一队伍中只能有一条未删除的关系，已删除的关系不参与唯一约束
+-- 先删除重复的关系并按前面的语句回填人数，再添加唯一约束；uk_team_user 以 team_id 开头，可以替代 idx_team_id
+-- alter table team_user add column is_active tinyint as (if(is_delete = 0, 1, null)) stored comment '未删除时为 1，已删除时为 null，不参与唯一约束' after is_delete;
+-- alter table team_user add unique key uk_team_user (team_id, user_id, is_active), drop index idx_team_id;
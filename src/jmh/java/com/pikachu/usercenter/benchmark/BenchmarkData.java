@@ -0,0 +1,75 @@
+package com.pikachu.usercenter.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 基准测试数据
+ * 标签取自 tags.txt，每个用户随机选取 1~N 个标签，与 InsertData 生成测试用户的分布一致
+ * 使用固定随机种子，保证每次运行的数据相同
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return tags.txt 中的全部标签
+     */
+    public static List<String> loadTags() {
+        InputStream inputStream = BenchmarkData.class.getClassLoader().getResourceAsStream("tags.txt");
+        if (inputStream == null) {
+            throw new IllegalStateException("tags.txt not found");
+        }
+        List<String> tags = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    tags.add(line.trim());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tags;
+    }
+
+    /**
+     * 生成用户标签列表
+     *
+     * @param tags  全部标签
+     * @param count 用户数
+     * @param seed  随机种子
+     * @return 每个用户的标签列表，下标即用户 id
+     */
+    public static List<List<String>> randomUsers(List<String> tags, int count, long seed) {
+        Random random = new Random(seed);
+        List<List<String>> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(randomTags(tags, random));
+        }
+        return users;
+    }
+
+    private static List<String> randomTags(List<String> tags, Random random) {
+        Set<String> result = new HashSet<>();
+        int count = random.nextInt(tags.size()) + 1;
+        while (result.size() < count) {
+            result.add(tags.get(random.nextInt(tags.size())));
+        }
+        return new ArrayList<>(result);
+    }
+}
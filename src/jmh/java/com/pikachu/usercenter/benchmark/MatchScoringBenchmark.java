@@ -0,0 +1,117 @@
+package com.pikachu.usercenter.benchmark;
+
+import com.pikachu.usercenter.index.TagDictionary;
+import com.pikachu.usercenter.index.TopKSelector;
+import com.pikachu.usercenter.index.UserTagIndex;
+import com.pikachu.usercenter.utils.AlgorithmUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 匹配打分循环基准测试
+ * 对一个用户与全部候选用户打分并取 Top-K，对比：
+ * 原实现（字符串编辑距离 + 全量排序）、数据库回退路径（标签 id 编辑距离 + 剪枝 + Top-K 堆）、
+ * 标签位图索引的单线程扫描与 ForkJoin 并行扫描
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchScoringBenchmark {
+
+    private static final int K = 9;
+
+    @Param({"10000", "100000", "1000000"})
+    public int userCount;
+
+    private List<List<String>> tagLists;
+    private int[][] tagIds;
+    private UserTagIndex userTagIndex;
+    private long[] masks;
+
+    private long selfId;
+    private List<String> selfTags;
+    private int[] selfTagIds;
+    private long selfMask;
+
+    @Setup
+    public void setup() {
+        List<String> tags = BenchmarkData.loadTags();
+        TagDictionary tagDictionary = new TagDictionary(tags);
+        userTagIndex = new UserTagIndex(tagDictionary);
+        tagLists = BenchmarkData.randomUsers(tags, userCount, 42);
+        tagIds = new int[userCount][];
+        masks = new long[userCount];
+        for (int id = 0; id < userCount; id++) {
+            List<String> userTags = tagLists.get(id);
+            tagIds[id] = tagDictionary.idsOf(userTags);
+            masks[id] = tagDictionary.maskOf(userTags);
+            userTagIndex.update((long) id, userTags);
+        }
+
+        selfId = userCount / 2;
+        selfTags = tagLists.get((int) selfId);
+        selfTagIds = tagIds[(int) selfId];
+        selfMask = masks[(int) selfId];
+    }
+
+    @Benchmark
+    public List<Long> legacySortAll() {
+        List<Map.Entry<Long, Integer>> userIdDistanceList = new ArrayList<>();
+        for (int id = 0; id < userCount; id++) {
+            if (id == selfId) {
+                continue;
+            }
+            userIdDistanceList.add(Map.entry((long) id, AlgorithmUtils.minDistance(selfTags, tagLists.get(id))));
+        }
+        return userIdDistanceList.stream()
+                .sorted(Comparator.comparingInt(Map.Entry::getValue))
+                .limit(K)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Benchmark
+    public long[] boundedTopK() {
+        TopKSelector topK = new TopKSelector(K);
+        for (int id = 0; id < userCount; id++) {
+            if (id == selfId) {
+                continue;
+            }
+            int threshold = topK.threshold();
+            int distance = AlgorithmUtils.minDistance(selfTagIds, tagIds[id], threshold);
+            if (distance <= threshold) {
+                topK.offer(id, distance);
+            }
+        }
+        return topK.sortedIds();
+    }
+
+    @Benchmark
+    public long[] maskScan() {
+        TopKSelector topK = new TopKSelector(K);
+        for (int id = 0; id < userCount; id++) {
+            long mask = masks[id];
+            if (mask == 0L || id == selfId) {
+                continue;
+            }
+            topK.offer(id, Long.bitCount(mask ^ selfMask));
+        }
+        return topK.sortedIds();
+    }
+
+    @Benchmark
+    public long[] maskScanParallel() {
+        return userTagIndex.match(selfId, selfMask, K).sortedIds();
+    }
+}
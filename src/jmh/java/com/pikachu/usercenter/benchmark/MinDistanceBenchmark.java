@@ -0,0 +1,70 @@
+package com.pikachu.usercenter.benchmark;
+
+import com.pikachu.usercenter.index.TagDictionary;
+import com.pikachu.usercenter.utils.AlgorithmUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 标签编辑距离基准测试
+ * 对比字符串版本、标签 id 版本以及带上界提前退出的版本，每次调用轮流取一对预先生成的用户
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MinDistanceBenchmark {
+
+    private static final int PAIRS = 1024;
+
+    /**
+     * 上界，模拟 Top-K 已满后的剪枝阈值
+     */
+    @Param({"4", "12"})
+    public int bound;
+
+    private List<List<String>> tagLists;
+    private int[][] tagIds;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        List<String> tags = BenchmarkData.loadTags();
+        TagDictionary tagDictionary = new TagDictionary(tags);
+        tagLists = BenchmarkData.randomUsers(tags, PAIRS * 2, 42);
+        tagIds = new int[tagLists.size()][];
+        for (int i = 0; i < tagLists.size(); i++) {
+            tagIds[i] = tagDictionary.idsOf(tagLists.get(i));
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 2) & (PAIRS * 2 - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public int strings() {
+        int i = next();
+        return AlgorithmUtils.minDistance(tagLists.get(i), tagLists.get(i + 1));
+    }
+
+    @Benchmark
+    public int ids() {
+        int i = next();
+        return AlgorithmUtils.minDistance(tagIds[i], tagIds[i + 1]);
+    }
+
+    @Benchmark
+    public int idsBounded() {
+        int i = next();
+        return AlgorithmUtils.minDistance(tagIds[i], tagIds[i + 1], bound);
+    }
+}
@@ -0,0 +1,118 @@
+package com.pikachu.usercenter.benchmark;
+
+import com.pikachu.usercenter.cache.CacheEntry;
+import com.pikachu.usercenter.cache.codec.BinaryRedisSerializer;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.model.entity.User;
+import net.datafaker.Faker;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.util.DigestUtils;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 值序列化基准测试
+ * 对一页用户（包装在缓存条目中）对比 JDK 序列化、二进制编码、二进制编码 + LZ4 的编解码耗时，
+ * 各方式的字节数在初始化时输出
+ * 用户数据的生成方式与 InsertData 一致
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisCodecBenchmark {
+
+    @Param({"5", "20"})
+    public int pageSize;
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+    private final BinaryRedisSerializer binarySerializer =
+            new BinaryRedisSerializer(0, RedisCodecBenchmark.class.getClassLoader());
+    private final BinaryRedisSerializer lz4Serializer =
+            new BinaryRedisSerializer(1, RedisCodecBenchmark.class.getClassLoader());
+
+    private CacheEntry<KeysetPage<User>> entry;
+    private byte[] jdkBytes;
+    private byte[] binaryBytes;
+    private byte[] lz4Bytes;
+
+    @Setup
+    public void setup() {
+        List<String> tags = BenchmarkData.loadTags();
+        Random random = new Random(42);
+        Faker faker = new Faker(new Locale("zh-CN"), random);
+        List<User> users = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            User user = new User();
+            user.setId(100000L + i);
+            user.setAccount(faker.regexify("\\w[a-zA-Z0-9-]{3,15}"));
+            user.setNickname(faker.name().name());
+            user.setAvatarUrl(faker.avatar().image());
+            user.setProfile(faker.text().text(0, 256));
+            user.setGender(faker.bool().bool());
+            user.setAge(faker.random().nextInt(1, 199));
+            user.setPassword(DigestUtils.md5DigestAsHex(faker.internet().password(8, 20).getBytes()));
+            user.setPhone(faker.phoneNumber().cellPhone());
+            user.setEmail(faker.internet().emailAddress());
+            user.setStatus(0);
+            Date createTime = faker.date().between(new Date(1262304000000L), new Date(1700000000000L));
+            user.setCreateTime(createTime.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime());
+            user.setUpdateTime(createTime.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime());
+            user.setIsDelete(false);
+            user.setRole(0);
+            user.setTags(BenchmarkData.randomUsers(tags, 1, random.nextLong()).get(0));
+            users.add(user);
+        }
+        KeysetPage<User> page = new KeysetPage<>(1, pageSize, 100000, true);
+        page.setRecords(users);
+        entry = new CacheEntry<>(page, System.currentTimeMillis());
+
+        jdkBytes = jdkSerializer.serialize(entry);
+        binaryBytes = binarySerializer.serialize(entry);
+        lz4Bytes = lz4Serializer.serialize(entry);
+        System.out.printf("%n%d users: jdk %d bytes, binary %d bytes, binary + lz4 %d bytes%n",
+                pageSize, jdkBytes.length, binaryBytes.length, lz4Bytes.length);
+    }
+
+    @Benchmark
+    public byte[] jdkSerialize() {
+        return jdkSerializer.serialize(entry);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(entry);
+    }
+
+    @Benchmark
+    public byte[] lz4Serialize() {
+        return lz4Serializer.serialize(entry);
+    }
+
+    @Benchmark
+    public Object jdkDeserialize() {
+        return jdkSerializer.deserialize(jdkBytes);
+    }
+
+    @Benchmark
+    public Object binaryDeserialize() {
+        return binarySerializer.deserialize(binaryBytes);
+    }
+
+    @Benchmark
+    public Object lz4Deserialize() {
+        return lz4Serializer.deserialize(lz4Bytes);
+    }
+}
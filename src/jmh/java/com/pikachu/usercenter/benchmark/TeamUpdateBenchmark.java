@@ -0,0 +1,108 @@
+package com.pikachu.usercenter.benchmark;
+
+import com.pikachu.usercenter.lock.LockHandle;
+import com.pikachu.usercenter.lock.StripedLockManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 修改队伍信息的并发基准测试
+ * 对比加锁后读取-修改-写入与按版本号条件更新（冲突时重试，最多 3 次）两种方式的吞吐量
+ * <p>
+ * 队伍行用内存中的版本号模拟，条件更新即版本号的 CAS；读取到写入之间的业务耗时由 work 模拟，
+ * 加锁方式额外付出 roundTrip 的耗时，模拟分布式锁访问 Redis 的往返：Redis 授予锁后响应才回到客户端，
+ * 解锁请求也要经过半个往返才到达 Redis，这段时间锁一直被持有，因此计入临界区
+ * 访问真实数据库和 Redis 的对比见 {@link TeamUpdateDbBenchmark}
+ * teams 为 1 时所有线程修改同一个队伍（热点），为 64 时基本没有冲突
+ * 失败次数（加锁超时或重试耗尽）和冲突次数作为辅助计数输出
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TeamUpdateBenchmark {
+
+    private static final int RETRIES = 3;
+    private static final Duration LOCK_WAIT = Duration.ofMillis(200);
+
+    @Param({"1", "64"})
+    public int teams;
+
+    @Param({"100", "1000"})
+    public int work;
+
+    @Param({"0", "5000"})
+    public int roundTrip;
+
+    private StripedLockManager lockManager;
+    private AtomicLong[] versions;
+    private String[] lockKeys;
+
+    @Setup
+    public void setup() {
+        lockManager = new StripedLockManager(1024);
+        versions = new AtomicLong[teams];
+        lockKeys = new String[teams];
+        for (int i = 0; i < teams; i++) {
+            versions[i] = new AtomicLong();
+            lockKeys[i] = String.format("user-center:team:teamId-%d", i);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+        public long failures;
+        public long conflicts;
+
+        private final SplittableRandom random = new SplittableRandom();
+
+        int nextTeam(int teams) {
+            return teams == 1 ? 0 : random.nextInt(teams);
+        }
+    }
+
+    @Benchmark
+    public boolean locked(Counters counters) throws InterruptedException {
+        int team = counters.nextTeam(teams);
+        try (LockHandle lock = lockManager.tryLock(lockKeys[team], LOCK_WAIT)) {
+            if (lock == null) {
+                counters.failures++;
+                return false;
+            }
+            // 加锁响应与解锁请求各半个往返，期间其它线程拿不到锁
+            Blackhole.consumeCPU(roundTrip);
+            long version = versions[team].get();
+            Blackhole.consumeCPU(work);
+            versions[team].set(version + 1);
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean optimistic(Counters counters) {
+        int team = counters.nextTeam(teams);
+        for (int i = 0; i < RETRIES; i++) {
+            long version = versions[team].get();
+            Blackhole.consumeCPU(work);
+            // update team set ..., version = version + 1 where id = ? and version = ?
+            if (versions[team].compareAndSet(version, version + 1)) {
+                return true;
+            }
+            counters.conflicts++;
+        }
+        counters.failures++;
+        return false;
+    }
+}
@@ -0,0 +1,189 @@
+package com.pikachu.usercenter.benchmark;
+
+import com.pikachu.usercenter.lock.LockHandle;
+import com.pikachu.usercenter.lock.RedissonLockManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import org.testcontainers.containers.GenericContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 修改队伍信息的并发基准测试（真实数据库与 Redis）
+ * 与 {@link TeamUpdateBenchmark} 相同的两种方式，队伍行保存在内嵌的 H2 数据库（MySQL 模式）中，
+ * 每个线程使用自己的连接，读取、写入都是真实的 SQL；加锁方式使用 {@link RedissonLockManager}，
+ * 加锁、解锁的 Redis 往返及读写数据库的耗时都在临界区内
+ * <p>
+ * 默认用 Testcontainers 启动一个 Redis 容器（需要 Docker），
+ * 也可以用 -Dbenchmark.redis=redis://host:6379 指定已有的 Redis
+ * 失败次数（加锁超时或重试耗尽）和冲突次数作为辅助计数输出
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TeamUpdateDbBenchmark {
+
+    private static final int RETRIES = 3;
+    private static final Duration LOCK_WAIT = Duration.ofMillis(200);
+    private static final String JDBC_URL = "jdbc:h2:mem:team_update;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Param({"1", "64"})
+    public int teams;
+
+    @Param({"100", "1000"})
+    public int work;
+
+    private GenericContainer<?> redisContainer;
+    private RedissonClient redissonClient;
+    private RedissonLockManager lockManager;
+    private Connection schemaConnection;
+    private String[] lockKeys;
+
+    @Setup
+    public void setup() throws SQLException {
+        String address = System.getProperty("benchmark.redis");
+        if (address == null) {
+            redisContainer = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+            redisContainer.start();
+            address = String.format("redis://%s:%d", redisContainer.getHost(), redisContainer.getMappedPort(6379));
+        }
+        Config config = new Config();
+        config.useSingleServer().setAddress(address);
+        redissonClient = Redisson.create(config);
+        lockManager = new RedissonLockManager(redissonClient);
+
+        // DB_CLOSE_DELAY=-1：连接全部关闭后内存数据库仍保留到进程退出，每次 trial 重新建表
+        schemaConnection = DriverManager.getConnection(JDBC_URL);
+        try (Statement statement = schemaConnection.createStatement()) {
+            statement.execute("drop table if exists team");
+            statement.execute("""
+                    create table team
+                    (
+                        id          bigint primary key,
+                        name        varchar(256) not null,
+                        description varchar(1024),
+                        version     int          not null default 0
+                    )""");
+        }
+        try (PreparedStatement insert = schemaConnection.prepareStatement(
+                "insert into team (id, name, description) values (?, ?, ?)")) {
+            for (int i = 0; i < teams; i++) {
+                insert.setLong(1, i);
+                insert.setString(2, "team-" + i);
+                insert.setString(3, "");
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        lockKeys = new String[teams];
+        for (int i = 0; i < teams; i++) {
+            lockKeys[i] = String.format("user-center:team:teamId-%d", i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        redissonClient.shutdown();
+        if (redisContainer != null) {
+            redisContainer.stop();
+        }
+        schemaConnection.close();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Session {
+        public long failures;
+        public long conflicts;
+
+        private final SplittableRandom random = new SplittableRandom();
+        private Connection connection;
+        private PreparedStatement select;
+        private PreparedStatement update;
+        private PreparedStatement conditionalUpdate;
+
+        /**
+         * 依赖基准状态，保证建表后再准备语句
+         */
+        @Setup
+        public void setup(TeamUpdateDbBenchmark benchmark) throws SQLException {
+            connection = DriverManager.getConnection(JDBC_URL);
+            select = connection.prepareStatement("select name, version from team where id = ?");
+            update = connection.prepareStatement(
+                    "update team set description = ?, version = version + 1 where id = ?");
+            conditionalUpdate = connection.prepareStatement(
+                    "update team set description = ?, version = version + 1 where id = ? and version = ?");
+        }
+
+        @TearDown
+        public void tearDown() throws SQLException {
+            connection.close();
+        }
+
+        int nextTeam(int teams) {
+            return teams == 1 ? 0 : random.nextInt(teams);
+        }
+
+        int readVersion(long teamId) throws SQLException {
+            select.setLong(1, teamId);
+            try (ResultSet resultSet = select.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(2);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean locked(Session session) throws InterruptedException, SQLException {
+        int team = session.nextTeam(teams);
+        try (LockHandle lock = lockManager.tryLock(lockKeys[team], LOCK_WAIT)) {
+            if (lock == null) {
+                session.failures++;
+                return false;
+            }
+            int version = session.readVersion(team);
+            Blackhole.consumeCPU(work);
+            session.update.setString(1, "v" + version);
+            session.update.setLong(2, team);
+            session.update.executeUpdate();
+        }
+        return true;
+    }
+
+    @Benchmark
+    public boolean optimistic(Session session) throws SQLException {
+        int team = session.nextTeam(teams);
+        for (int i = 0; i < RETRIES; i++) {
+            int version = session.readVersion(team);
+            Blackhole.consumeCPU(work);
+            session.conditionalUpdate.setString(1, "v" + version);
+            session.conditionalUpdate.setLong(2, team);
+            session.conditionalUpdate.setInt(3, version);
+            if (session.conditionalUpdate.executeUpdate() == 1) {
+                return true;
+            }
+            session.conflicts++;
+        }
+        session.failures++;
+        return false;
+    }
+}
@@ -0,0 +1,82 @@
+package com.pikachu.usercenter.benchmark;
+
+import com.pikachu.usercenter.index.TopKSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-K 选择基准测试
+ * 在 n 个（用户 id, 距离）中选出距离最小的 K 个，对比全量排序、装箱优先队列与原始类型堆
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TopKBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int n;
+
+    @Param({"9", "100"})
+    public int k;
+
+    private int[] distances;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        distances = new int[n];
+        for (int i = 0; i < n; i++) {
+            // 25 个标签的编辑距离范围
+            distances[i] = random.nextInt(26);
+        }
+    }
+
+    @Benchmark
+    public List<Long> sortAll() {
+        List<Map.Entry<Long, Integer>> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            list.add(Map.entry((long) i, distances[i]));
+        }
+        list.sort(Comparator.comparingInt(Map.Entry::getValue));
+        List<Long> result = new ArrayList<>(k);
+        for (int i = 0; i < Math.min(k, n); i++) {
+            result.add(list.get(i).getKey());
+        }
+        return result;
+    }
+
+    @Benchmark
+    public PriorityQueue<Map.Entry<Long, Integer>> boxedHeap() {
+        Comparator<Map.Entry<Long, Integer>> comparator = Comparator.comparingInt(Map.Entry::getValue);
+        PriorityQueue<Map.Entry<Long, Integer>> heap = new PriorityQueue<>(k + 1, comparator.reversed());
+        for (int i = 0; i < n; i++) {
+            heap.offer(Map.entry((long) i, distances[i]));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        return heap;
+    }
+
+    @Benchmark
+    public long[] primitiveHeap() {
+        TopKSelector topK = new TopKSelector(k);
+        for (int i = 0; i < n; i++) {
+            topK.offer(i, distances[i]);
+        }
+        return topK.sortedIds();
+    }
+}
@@ -3,11 +3,13 @@ package com.pikachu.usercenter;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.pikachu.usercenter.mapper")
 @EnableScheduling
+@EnableAsync
 public class UserCenterBackendApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,32 @@
+package com.pikachu.usercenter.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 合并对同一方法、同一参数的并发调用，只执行一次，其余调用共用结果
+ * 适合没有缓存或缓存失效时代价较高的查询方法，不适合有副作用的方法
+ * <p>
+ * 通过 Spring AOP 生效，同一个类内部的调用不会被合并
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ * @see com.pikachu.usercenter.cache.SingleFlightGroup
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SingleFlight {
+
+    /**
+     * 合并键，SpEL 表达式，可引用方法参数，如 "#userId"
+     * 为空时使用全部参数的字符串形式
+     */
+    String key() default "";
+
+    /**
+     * 是否跨节点合并，结果需要能写入 Redis
+     */
+    boolean distributed() default false;
+}
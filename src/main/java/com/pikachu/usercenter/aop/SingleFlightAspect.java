@@ -0,0 +1,67 @@
+package com.pikachu.usercenter.aop;
+
+import com.pikachu.usercenter.annotation.SingleFlight;
+import com.pikachu.usercenter.cache.SingleFlightGroup;
+import jakarta.annotation.Resource;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SingleFlight} 切面
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Aspect
+@Component
+public class SingleFlightAspect {
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+    private final Map<String, Expression> expressions = new ConcurrentHashMap<>();
+
+    @Resource
+    private SingleFlightGroup singleFlightGroup;
+
+    @Around("@annotation(singleFlight)")
+    public Object around(ProceedingJoinPoint joinPoint, SingleFlight singleFlight) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        String key = method.getDeclaringClass().getSimpleName() + "." + method.getName() + ":"
+                + evaluateKey(singleFlight.key(), method, joinPoint.getTarget(), joinPoint.getArgs());
+
+        return singleFlightGroup.execute(key, singleFlight.distributed(), () -> {
+            try {
+                return joinPoint.proceed();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        });
+    }
+
+    private String evaluateKey(String key, Method method, Object target, Object[] args) {
+        if (key.isEmpty()) {
+            return Arrays.deepToString(args);
+        }
+        Expression expression = expressions.computeIfAbsent(key, parser::parseExpression);
+        MethodBasedEvaluationContext context =
+                new MethodBasedEvaluationContext(target, method, args, parameterNameDiscoverer);
+        return String.valueOf(expression.getValue(context));
+    }
+}
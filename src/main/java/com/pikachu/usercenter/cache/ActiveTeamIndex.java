@@ -0,0 +1,287 @@
+package com.pikachu.usercenter.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.common.PageCursor;
+import com.pikachu.usercenter.common.PageParams;
+import com.pikachu.usercenter.config.TeamConfig;
+import com.pikachu.usercenter.mapper.TeamMapper;
+import com.pikachu.usercenter.model.entity.Team;
+import com.pikachu.usercenter.model.enums.TeamStatus;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.pikachu.usercenter.utils.TransactionUtils.afterCommit;
+
+/**
+ * 可浏览队伍索引
+ * 未过期的公开、加密队伍的 id 保存在 Redis 有序集合中，按创建时间排序，另一个有序集合按过期时间排序，
+ * 不带关键字的队伍列表通过一次脚本调用取出一页 id，不再扫描 team 表
+ * <p>
+ * 创建、修改、解散、删除队伍时在事务提交后同步；过期的队伍在读取时按过期时间批量移除，
+ * 一次移除不完时本次读取查询数据库，保证返回的页和总数不含已过期的队伍
+ * 索引由后台定时任务在不存在时从数据库重建，之后每隔一段时间以追加的方式重建一次，修正漏同步的队伍；
+ * 重建完成前读取返回 null，由调用方查询数据库，请求线程不会等待重建
+ * 已删除却仍在索引中的队伍在读取时跳过并移除
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class ActiveTeamIndex {
+
+    private static final String ACTIVE_KEY = "user-center:team:active";
+    private static final String EXPIRE_KEY = "user-center:team:active:expire";
+    private static final String LOADED_KEY = "user-center:team:active:loaded";
+
+    /**
+     * 每次读取时最多移除的过期队伍数，避免脚本执行时间过长
+     */
+    private static final int PRUNE_LIMIT = 500;
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * 已加载标记的剩余时间少于该值（秒）时提前重建，为检查间隔的两倍，标记不会在两次检查之间过期
+     */
+    private static final long REBUILD_AHEAD_SECONDS = 120;
+
+    private static final String NOT_LOADED = "-1";
+    private static final String CURSOR_MISSING = "-2";
+    private static final String PRUNE_PENDING = "-3";
+
+    /**
+     * KEYS：按创建时间排序的集合、按过期时间排序的集合、已加载标记
+     * ARGV：当前时间（毫秒）、最多移除的过期队伍数、游标 id（可为空）、起始下标、取出个数
+     * 返回：总数及一页 id；未加载返回 -1，游标对应的队伍已不在索引中返回 -2，
+     * 移除后仍有过期的队伍返回 -3
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> PAGE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('exists', KEYS[3]) == 0 then
+                return {'-1'}
+            end
+            local expired = redis.call('zrangebyscore', KEYS[2], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+            if #expired > 0 then
+                redis.call('zrem', KEYS[1], unpack(expired))
+                redis.call('zrem', KEYS[2], unpack(expired))
+                if redis.call('zcount', KEYS[2], '-inf', ARGV[1]) > 0 then
+                    return {'-3'}
+                end
+            end
+            local start = tonumber(ARGV[4])
+            if ARGV[3] ~= '' then
+                local rank = redis.call('zrank', KEYS[1], ARGV[3])
+                if not rank then
+                    return {'-2'}
+                end
+                start = rank + 1
+            end
+            local ids = redis.call('zrange', KEYS[1], start, start + tonumber(ARGV[5]) - 1)
+            table.insert(ids, 1, tostring(redis.call('zcard', KEYS[1])))
+            return ids
+            """, List.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private TeamMapper teamMapper;
+
+    @Resource
+    private SingleFlightGroup singleFlightGroup;
+
+    @Resource
+    private TeamConfig teamConfig;
+
+    /**
+     * 按页码或游标取出一页队伍 id，多取一个判断是否有下一页
+     * 游标与数据库分页相同，为上一页最后一个队伍的 id
+     *
+     * @param pageParams 分页参数
+     * @return 一页队伍 id 及下一页游标，索引未加载、Redis 不可用、游标对应的队伍已不在索引中
+     * 或过期的队伍未移除完时返回 null，由调用方查询数据库
+     */
+    public KeysetPage<Long> page(PageParams pageParams) {
+        Long lastId = PageCursor.decode(pageParams.getCursor());
+        long size = pageParams.getSize();
+        KeysetPage<Long> page = lastId == null
+                ? new KeysetPage<>(pageParams.getCurrent(), size)
+                : new KeysetPage<>(1, size);
+
+        List<String> reply;
+        try {
+            reply = execute(page.offset(), size + 1, lastId);
+        } catch (Exception e) {
+            log.error("redis read active teams error", e);
+            return null;
+        }
+        if (reply == null || reply.isEmpty() || NOT_LOADED.equals(reply.get(0))
+                || CURSOR_MISSING.equals(reply.get(0)) || PRUNE_PENDING.equals(reply.get(0))) {
+            return null;
+        }
+
+        List<Long> ids = new ArrayList<>(reply.size() - 1);
+        for (int i = 1; i < reply.size(); i++) {
+            ids.add(Long.valueOf(reply.get(i)));
+        }
+        if (ids.size() > size) {
+            ids = new ArrayList<>(ids.subList(0, (int) size));
+            page.setNextCursor(PageCursor.encode(ids.get(ids.size() - 1)));
+        }
+        if (Boolean.TRUE.equals(pageParams.getCount())) {
+            page.setTotal(Long.parseLong(reply.get(0)));
+            page.setSearchCount(true);
+        } else {
+            page.setSearchCount(false);
+        }
+        page.setRecords(ids);
+        return page;
+    }
+
+    /**
+     * 队伍创建或修改后同步，在事务提交后执行
+     * 私密或已过期的队伍从索引中移除
+     *
+     * @param team 队伍，需要包含状态、创建时间、过期时间
+     */
+    public void save(Team team) {
+        Long teamId = team.getId();
+        if (!isBrowsable(team)) {
+            remove(List.of(teamId));
+            return;
+        }
+        // 刚插入的队伍没有读回创建时间
+        long createTime = team.getCreateTime() == null ? System.currentTimeMillis() : team.getCreateTime().getTime();
+        long expireTime = team.getExpireTime().getTime();
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        ops.opsForZSet().add(ACTIVE_KEY, String.valueOf(teamId), createTime);
+                        ops.opsForZSet().add(EXPIRE_KEY, String.valueOf(teamId), expireTime);
+                        return null;
+                    }
+                });
+            } catch (Exception e) {
+                log.error("redis set key error", e);
+            }
+        });
+    }
+
+    /**
+     * 队伍解散或删除后移除，在事务提交后执行
+     *
+     * @param teamIds 队伍 id
+     */
+    public void remove(Collection<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return;
+        }
+        Object[] members = teamIds.stream().map(String::valueOf).toArray();
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        ops.opsForZSet().remove(ACTIVE_KEY, members);
+                        ops.opsForZSet().remove(EXPIRE_KEY, members);
+                        return null;
+                    }
+                });
+            } catch (Exception e) {
+                log.error("redis delete key error", e);
+            }
+        });
+    }
+
+    /**
+     * @param team 队伍
+     * @return 队伍是否出现在浏览列表中
+     */
+    public static boolean isBrowsable(Team team) {
+        return !TeamStatus.PRIVATE.equals(TeamStatus.getEnumByValue(team.getStatus()))
+                && team.getExpireTime() != null && team.getExpireTime().after(new Date());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> execute(long offset, long count, Long lastId) {
+        return stringRedisTemplate.execute(PAGE_SCRIPT, List.of(ACTIVE_KEY, EXPIRE_KEY, LOADED_KEY),
+                String.valueOf(System.currentTimeMillis()), String.valueOf(PRUNE_LIMIT),
+                lastId == null ? "" : String.valueOf(lastId), String.valueOf(offset), String.valueOf(count));
+    }
+
+    /**
+     * 索引不存在或快到重建间隔时，从数据库追加所有可浏览的队伍
+     * 应用启动时执行一次，之后每分钟检查一次；多个节点同时发现时只重建一次
+     * 只追加不清空，重建期间提交的创建、修改不会丢失
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void rebuild() {
+        try {
+            if (needsRebuild()) {
+                doRebuild();
+            }
+        } catch (Exception e) {
+            log.error("rebuild active team index error", e);
+        }
+    }
+
+    private boolean needsRebuild() {
+        Long ttl = stringRedisTemplate.getExpire(LOADED_KEY, TimeUnit.SECONDS);
+        // -2 为标记不存在，-1 为未设置过期时间
+        return ttl == null || ttl == -2 || (ttl >= 0 && ttl < REBUILD_AHEAD_SECONDS);
+    }
+
+    private void doRebuild() {
+        singleFlightGroup.execute(LOADED_KEY, true, () -> {
+            if (!needsRebuild()) {
+                return Boolean.TRUE;
+            }
+            LambdaQueryWrapper<Team> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.select(Team::getId, Team::getCreateTime, Team::getExpireTime);
+            queryWrapper.ne(Team::getStatus, TeamStatus.PRIVATE.getValue());
+            queryWrapper.gt(Team::getExpireTime, new Date());
+            List<Team> teams = teamMapper.selectList(queryWrapper);
+
+            for (int from = 0; from < teams.size(); from += BATCH_SIZE) {
+                List<Team> batch = teams.subList(from, Math.min(from + BATCH_SIZE, teams.size()));
+                stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        for (Team team : batch) {
+                            ops.opsForZSet().add(ACTIVE_KEY, String.valueOf(team.getId()), team.getCreateTime().getTime());
+                            ops.opsForZSet().add(EXPIRE_KEY, String.valueOf(team.getId()), team.getExpireTime().getTime());
+                        }
+                        return null;
+                    }
+                });
+            }
+            stringRedisTemplate.opsForValue().set(LOADED_KEY, "1", Duration.ofSeconds(teamConfig.getActiveRebuildInterval()));
+            log.info("active team index rebuilt, {} teams", teams.size());
+            return Boolean.TRUE;
+        });
+    }
+}
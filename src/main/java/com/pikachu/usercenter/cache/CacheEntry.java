@@ -0,0 +1,39 @@
+package com.pikachu.usercenter.cache;
+
+import lombok.Getter;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 缓存条目
+ * 缓存值及其软过期时间，软过期后仍可读取，但应在后台刷新；硬过期由缓存本身的过期时间控制
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Getter
+public class CacheEntry<V> implements Serializable {
+    @Serial
+    private static final long serialVersionUID = -3390154866482374017L;
+
+    private final V value;
+
+    /**
+     * 软过期时间（毫秒时间戳）
+     */
+    private final long softExpireAt;
+
+    public CacheEntry(V value, long softExpireAt) {
+        this.value = value;
+        this.softExpireAt = softExpireAt;
+    }
+
+    /**
+     * @param now 当前时间（毫秒时间戳）
+     * @return 是否已软过期
+     */
+    public boolean isStale(long now) {
+        return now >= softExpireAt;
+    }
+}
@@ -0,0 +1,46 @@
+package com.pikachu.usercenter.cache;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存的后台刷新线程池
+ * 本身不实现 Executor，注册为 Bean 后不会替换掉 Spring Boot 默认的 @Async 线程池
+ * 队列满时拒绝提交，由缓存放弃本次刷新；关闭后提交的刷新同样被拒绝
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class CacheRefreshExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param threads   线程数
+     * @param queueSize 队列长度
+     */
+    public CacheRefreshExecutor(int threads, int queueSize) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-refresh-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueSize), threadFactory);
+    }
+
+    /**
+     * @return 提交刷新任务的线程池
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * 停止接受新的刷新，已提交的刷新执行完后线程退出
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,81 @@
+package com.pikachu.usercenter.cache;
+
+/**
+ * Count-Min Sketch 频率估计
+ * 用固定大小的计数器表估计每个键被访问的次数，只会高估、不会低估
+ * 累计增加的次数达到表宽的 10 倍时所有计数器减半，使估计值反映近期的访问频率
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class CountMinSketch {
+
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x97CB3127, 0xB2A4F1C3, 0xC2B2AE35, 0x85EBCA6B};
+
+    private final int[] table;
+    private final int width;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param width 每行计数器个数，向上取整为 2 的幂，一般不小于预计的活跃键数
+     */
+    public CountMinSketch(int width) {
+        int w = Integer.highestOneBit(Math.max(width, 16) - 1) << 1;
+        this.width = w;
+        this.table = new int[DEPTH * w];
+        this.sampleSize = 10 * w;
+    }
+
+    /**
+     * 键的访问次数加一
+     *
+     * @param key 键
+     * @return 加一后的估计次数
+     */
+    public synchronized int increment(Object key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(hash, i);
+            int count = ++table[index];
+            min = Math.min(min, count);
+        }
+        if (++additions >= sampleSize) {
+            reset();
+        }
+        return min;
+    }
+
+    /**
+     * @param key 键
+     * @return 估计的访问次数
+     */
+    public synchronized int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, table[indexOf(hash, i)]);
+        }
+        return min;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[row];
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] >>>= 1;
+        }
+        additions >>>= 1;
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 15);
+    }
+}
@@ -0,0 +1,171 @@
+package com.pikachu.usercenter.cache;
+
+import com.pikachu.usercenter.model.vo.SingleFlightStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并
+ * 同一个键同时只有一个调用真正执行加载，其余并发调用等待并共用它的结果（或异常），
+ * 热点缓存过期的瞬间只有一次回源查询
+ * <p>
+ * 加载在第一个调用者自己的线程中执行，请求上下文（如 session）对加载过程可见
+ * 加载过程中不能以同一个键再次调用，否则会等待自己
+ * <p>
+ * 跨节点模式下，各节点合并后的加载者再竞争 Redis 分布式锁，拿到锁的节点加载并把结果短暂写入 Redis，
+ * 其余节点拿到锁后直接读取该结果；等锁超时或 Redis 不可用时退化为本节点加载
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Slf4j
+public class SingleFlightGroup {
+
+    private static final String LOCK_KEY_PREFIX = "user-center:single-flight:lock:";
+    private static final String RESULT_KEY_PREFIX = "user-center:single-flight:result:";
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+    private final RedissonClient redissonClient;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration lockWait;
+    private final Duration resultTtl;
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder lockTimeouts = new LongAdder();
+
+    /**
+     * @param redissonClient 跨节点模式的分布式锁，为 null 时只在本节点内合并
+     * @param redisTemplate  跨节点模式共享加载结果
+     * @param lockWait       跨节点模式等待其它节点加载的最长时间
+     * @param resultTtl      跨节点模式加载结果在 Redis 中的保留时间，只需覆盖其它节点的等待时间
+     */
+    public SingleFlightGroup(RedissonClient redissonClient, RedisTemplate<String, Object> redisTemplate,
+                             Duration lockWait, Duration resultTtl) {
+        this.redissonClient = redissonClient;
+        this.redisTemplate = redisTemplate;
+        this.lockWait = lockWait;
+        this.resultTtl = resultTtl;
+    }
+
+    /**
+     * 只在本节点内合并
+     *
+     * @see #execute(String, boolean, Supplier)
+     */
+    public <T> T execute(String key, Supplier<T> loader) {
+        return execute(key, false, loader);
+    }
+
+    /**
+     * 执行加载，同一个键的并发调用只加载一次
+     *
+     * @param key         合并键
+     * @param distributed 是否跨节点合并
+     * @param loader      加载过程
+     * @return 加载结果
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, boolean distributed, Supplier<T> loader) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+
+        try {
+            loads.increment();
+            T value = distributed && redissonClient != null ? loadDistributed(key, loader) : loader.get();
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T loadDistributed(String key, Supplier<T> loader) {
+        RLock lock = redissonClient.getLock(LOCK_KEY_PREFIX + key);
+        boolean locked = false;
+        try {
+            // 不指定租期，由看门狗续期，加载耗时不受限制
+            locked = lock.tryLock(lockWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("single flight lock error", e);
+        }
+        if (!locked) {
+            lockTimeouts.increment();
+            return loader.get();
+        }
+
+        try {
+            String resultKey = RESULT_KEY_PREFIX + key;
+            Object shared = null;
+            try {
+                shared = redisTemplate.opsForValue().get(resultKey);
+            } catch (Exception e) {
+                log.error("redis get key error", e);
+            }
+            if (shared != null) {
+                remoteHits.increment();
+                return (T) shared;
+            }
+
+            T value = loader.get();
+            if (value != null) {
+                try {
+                    redisTemplate.opsForValue().set(resultKey, value, resultTtl);
+                } catch (Exception e) {
+                    log.error("redis set key error", e);
+                }
+            }
+            return value;
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new CompletionException(e);
+    }
+
+    public SingleFlightStatsVO stats() {
+        SingleFlightStatsVO stats = new SingleFlightStatsVO();
+        stats.setInFlight((long) flights.size());
+        stats.setLoads(loads.sum());
+        stats.setCoalesced(coalesced.sum());
+        stats.setRemoteHits(remoteHits.sum());
+        stats.setLockTimeouts(lockTimeouts.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,290 @@
+package com.pikachu.usercenter.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.pikachu.usercenter.config.TeamConfig;
+import com.pikachu.usercenter.mapper.TeamUserMapper;
+import com.pikachu.usercenter.mapper.UserMapper;
+import com.pikachu.usercenter.model.entity.Team;
+import com.pikachu.usercenter.model.entity.TeamUser;
+import com.pikachu.usercenter.model.entity.User;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static com.pikachu.usercenter.utils.TransactionUtils.afterCommit;
+
+/**
+ * 队伍名额
+ * Redis 中为每个队伍保存成员 id 集合，为每个用户保存已加入的队伍数，
+ * 加入队伍时由一个脚本原子地完成是否已加入、是否满员、是否超过加入上限的判断并占用名额，
+ * 并发加入同一队伍不需要加锁
+ * <p>
+ * 名额在数据库事务提交前占用，事务回滚时自动释放；退出、解散在事务提交后同步
+ * 键不存在时从数据库加载，数据库中的队伍人数仍以条件更新兜底，Redis 不可用时不影响加入的正确性
+ * <p>
+ * 脚本同时操作队伍和用户两个键，Redis 集群模式下两个键不在同一个槽，只支持单机或哨兵部署
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class TeamSeats {
+
+    private static final String SEATS_KEY_PREFIX = "user-center:team:seats:";
+    private static final String JOINED_KEY_PREFIX = "user-center:team:joined-count:";
+
+    /**
+     * KEYS：队伍成员集合、用户已加入队伍数
+     * ARGV：用户 id、队伍最大人数、加入上限、过期时间（秒）
+     */
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('exists', KEYS[1]) == 0 or redis.call('exists', KEYS[2]) == 0 then
+                return -1
+            end
+            if redis.call('sismember', KEYS[1], ARGV[1]) == 1 then
+                return 1
+            end
+            if redis.call('scard', KEYS[1]) >= tonumber(ARGV[2]) then
+                return 2
+            end
+            local limit = tonumber(ARGV[3])
+            if limit > 0 and tonumber(redis.call('get', KEYS[2])) >= limit then
+                return 3
+            end
+            redis.call('sadd', KEYS[1], ARGV[1])
+            redis.call('incr', KEYS[2])
+            redis.call('expire', KEYS[1], ARGV[4])
+            redis.call('expire', KEYS[2], ARGV[4])
+            return 0
+            """, Long.class);
+
+    /**
+     * KEYS：队伍成员集合、用户已加入队伍数
+     * ARGV：用户 id
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('srem', KEYS[1], ARGV[1]) == 1 and redis.call('exists', KEYS[2]) == 1 then
+                redis.call('decr', KEYS[2])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * KEYS：队伍成员集合
+     * ARGV：过期时间（秒）、成员 id...
+     */
+    private static final RedisScript<Long> LOAD_SEATS_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('exists', KEYS[1]) == 1 then
+                return 0
+            end
+            redis.call('sadd', KEYS[1], unpack(ARGV, 2))
+            redis.call('expire', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS：用户已加入队伍数
+     * ARGV：增量
+     */
+    private static final RedisScript<Long> ADJUST_JOINED_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('exists', KEYS[1]) == 0 then
+                return 0
+            end
+            redis.call('incrby', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private TeamUserMapper teamUserMapper;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private TeamConfig teamConfig;
+
+    /**
+     * 为用户占用队伍的一个名额
+     * 占用成功后当前事务回滚时自动释放，需要在事务中调用
+     *
+     * @param team   队伍
+     * @param userId 用户 id
+     * @return 占用结果
+     */
+    public Result reserve(Team team, Long userId) {
+        Result result;
+        try {
+            result = tryReserve(team, userId);
+            if (result == Result.NOT_LOADED) {
+                load(team.getId(), userId);
+                result = tryReserve(team, userId);
+            }
+        } catch (Exception e) {
+            log.error("redis reserve team seat error", e);
+            return Result.UNAVAILABLE;
+        }
+        if (result == Result.NOT_LOADED) {
+            return Result.UNAVAILABLE;
+        }
+
+        if (result == Result.RESERVED) {
+            Long teamId = team.getId();
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        release(teamId, userId);
+                    }
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 用户退出队伍后释放名额，在事务提交后执行
+     *
+     * @param teamId 队伍 id
+     * @param userId 用户 id
+     */
+    public void releaseAfterCommit(Long teamId, Long userId) {
+        afterCommit(() -> release(teamId, userId));
+    }
+
+    /**
+     * 队伍解散后删除全部名额，并同步各成员已加入的队伍数，在事务提交后执行
+     *
+     * @param teamId    队伍 id
+     * @param memberIds 成员 id
+     */
+    public void clearAfterCommit(Long teamId, Collection<Long> memberIds) {
+        afterCommit(() -> {
+            try {
+                stringRedisTemplate.delete(seatsKey(teamId));
+            } catch (Exception e) {
+                log.error("redis delete key error", e);
+            }
+            memberIds.forEach(memberId -> adjustJoined(memberId, -1));
+        });
+    }
+
+    /**
+     * 用户创建队伍后同步已加入的队伍数，在事务提交后执行
+     * 新队伍的成员集合在第一次有人加入时从数据库加载
+     *
+     * @param userId 用户 id
+     */
+    public void joinedAfterCommit(Long userId) {
+        afterCommit(() -> adjustJoined(userId, 1));
+    }
+
+    private Result tryReserve(Team team, Long userId) {
+        Long code = stringRedisTemplate.execute(RESERVE_SCRIPT,
+                List.of(seatsKey(team.getId()), joinedKey(userId)),
+                String.valueOf(userId), String.valueOf(team.getMaxNumber()),
+                String.valueOf(teamConfig.getMaxJoinedTeams()), String.valueOf(teamConfig.getSeatTtl()));
+        if (code == null) {
+            return Result.NOT_LOADED;
+        }
+        return switch (code.intValue()) {
+            case 0 -> Result.RESERVED;
+            case 1 -> Result.DUPLICATE;
+            case 2 -> Result.FULL;
+            case 3 -> Result.LIMIT_EXCEEDED;
+            default -> Result.NOT_LOADED;
+        };
+    }
+
+    private void load(Long teamId, Long userId) {
+        String seatsKey = seatsKey(teamId);
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(seatsKey))) {
+            LambdaQueryWrapper<TeamUser> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.select(TeamUser::getUserId);
+            queryWrapper.eq(TeamUser::getTeamId, teamId);
+            List<TeamUser> teamUsers = teamUserMapper.selectList(queryWrapper);
+            // 队伍至少有队长一个成员，没有成员说明队伍已解散，不加载
+            if (!teamUsers.isEmpty()) {
+                List<String> args = new ArrayList<>(teamUsers.size() + 1);
+                args.add(String.valueOf(teamConfig.getSeatTtl()));
+                teamUsers.forEach(teamUser -> args.add(String.valueOf(teamUser.getUserId())));
+                stringRedisTemplate.execute(LOAD_SEATS_SCRIPT, List.of(seatsKey), args.toArray());
+            }
+        }
+
+        String joinedKey = joinedKey(userId);
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(joinedKey))) {
+            User user = userMapper.selectById(userId);
+            if (user != null && user.getJoinedTeamCount() != null) {
+                stringRedisTemplate.opsForValue().setIfAbsent(joinedKey, String.valueOf(user.getJoinedTeamCount()),
+                        Duration.ofSeconds(teamConfig.getSeatTtl()));
+            }
+        }
+    }
+
+    private void release(Long teamId, Long userId) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(seatsKey(teamId), joinedKey(userId)),
+                    String.valueOf(userId));
+        } catch (Exception e) {
+            log.error("redis release team seat error", e);
+        }
+    }
+
+    private void adjustJoined(Long userId, int delta) {
+        try {
+            stringRedisTemplate.execute(ADJUST_JOINED_SCRIPT, List.of(joinedKey(userId)), String.valueOf(delta));
+        } catch (Exception e) {
+            log.error("redis set key error", e);
+        }
+    }
+
+    private static String seatsKey(Long teamId) {
+        return SEATS_KEY_PREFIX + teamId;
+    }
+
+    private static String joinedKey(Long userId) {
+        return JOINED_KEY_PREFIX + userId;
+    }
+
+    public enum Result {
+        /**
+         * 已占用名额
+         */
+        RESERVED,
+        /**
+         * 已在队伍中
+         */
+        DUPLICATE,
+        /**
+         * 队伍已满员
+         */
+        FULL,
+        /**
+         * 用户加入的队伍数已达上限
+         */
+        LIMIT_EXCEEDED,
+        /**
+         * 队伍或用户的数据未加载
+         */
+        NOT_LOADED,
+        /**
+         * Redis 不可用，需要由数据库判断
+         */
+        UNAVAILABLE
+    }
+}
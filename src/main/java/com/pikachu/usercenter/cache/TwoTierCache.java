@@ -0,0 +1,287 @@
+package com.pikachu.usercenter.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.pikachu.usercenter.model.vo.CacheStatsVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 两级缓存
+ * 一级为进程内的 Caffeine 缓存，按容量淘汰，由 W-TinyLFU 决定新条目能否挤掉旧条目；二级为 Redis
+ * <p>
+ * 两级都未命中时从数据源加载，加载结果只有在键的近期访问次数达到准入阈值后才写入缓存，
+ * 只被查询过一次的键（如随手输入的搜索词）不会占用任何一级缓存
+ * 访问次数由 {@link CountMinSketch} 估计，每个节点各自统计
+ * <p>
+ * 指定 {@link SingleFlightGroup} 时，同一个键的并发回源只执行一次；
+ * 等待中的请求同样计入访问次数，被并发查询的热点键首次加载就能写入缓存
+ * <p>
+ * 开启 {@link #staleWhileRevalidate} 后，条目超过软过期时间仍直接返回旧值，同时在后台刷新，
+ * 只有超过硬过期时间（二级缓存过期时间）的键才会阻塞在回源上
+ * 开启 {@link #jitter} 后各级过期时间在 [ttl * (1 - jitter), ttl] 内随机，同时写入的键不会同时过期
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Slf4j
+public class TwoTierCache<V> {
+
+    private final String name;
+    private final Cache<String, CacheEntry<V>> localCache;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration localTtl;
+    private final Duration redisTtl;
+    private final CountMinSketch doorkeeper;
+    private final int admitFrequency;
+    private final SingleFlightGroup singleFlightGroup;
+    private final boolean distributed;
+    private final Clock clock;
+    private final ConcurrentMap<String, Boolean> refreshing = new ConcurrentHashMap<>();
+    private Duration softTtl;
+    private Executor refreshExecutor;
+    private double jitter;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder localMisses = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+    private final LongAdder rejects = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * @param name           缓存名称
+     * @param redisTemplate  二级缓存
+     * @param localSize      一级缓存最大条目数
+     * @param localTtl       一级缓存过期时间，各节点的一级缓存不会被其它节点主动失效，需要短于二级缓存
+     * @param redisTtl       二级缓存过期时间
+     * @param admitFrequency 准入阈值，键的近期访问次数达到该值后才写入缓存
+     */
+    public TwoTierCache(String name, RedisTemplate<String, Object> redisTemplate,
+                        long localSize, Duration localTtl, Duration redisTtl, int admitFrequency) {
+        this(name, redisTemplate, localSize, localTtl, redisTtl, admitFrequency, null, false);
+    }
+
+    /**
+     * @param singleFlightGroup 合并并发回源，为 null 时不合并
+     * @param distributed       是否跨节点合并回源
+     */
+    public TwoTierCache(String name, RedisTemplate<String, Object> redisTemplate,
+                        long localSize, Duration localTtl, Duration redisTtl, int admitFrequency,
+                        SingleFlightGroup singleFlightGroup, boolean distributed) {
+        this(name, redisTemplate, localSize, localTtl, redisTtl, admitFrequency, singleFlightGroup, distributed,
+                Clock.systemUTC(), Ticker.systemTicker());
+    }
+
+    /**
+     * @param clock  软过期时间的时钟，软过期时间随条目写入二级缓存，各节点共用，需要是墙上时间
+     * @param ticker 一级缓存过期的计时器
+     */
+    TwoTierCache(String name, RedisTemplate<String, Object> redisTemplate,
+                 long localSize, Duration localTtl, Duration redisTtl, int admitFrequency,
+                 SingleFlightGroup singleFlightGroup, boolean distributed, Clock clock, Ticker ticker) {
+        this.name = name;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(localSize)
+                .ticker(ticker)
+                .expireAfter(new Expiry<String, CacheEntry<V>>() {
+                    @Override
+                    public long expireAfterCreate(String key, CacheEntry<V> entry, long currentTime) {
+                        return jitter(TwoTierCache.this.localTtl, jitter).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CacheEntry<V> entry,
+                                                  long currentTime, long currentDuration) {
+                        return jitter(TwoTierCache.this.localTtl, jitter).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CacheEntry<V> entry,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+        this.redisTemplate = redisTemplate;
+        this.localTtl = localTtl;
+        this.redisTtl = redisTtl;
+        this.doorkeeper = new CountMinSketch((int) Math.min(localSize * 4, 1 << 20));
+        this.admitFrequency = admitFrequency;
+        this.singleFlightGroup = singleFlightGroup;
+        this.distributed = distributed;
+        this.clock = clock;
+    }
+
+    /**
+     * 开启软过期，超过软过期时间的条目先返回旧值，再在后台刷新
+     *
+     * @param softTtl         软过期时间，需要短于二级缓存过期时间
+     * @param refreshExecutor 后台刷新线程池，队列满时放弃本次刷新
+     * @return 当前缓存
+     */
+    public TwoTierCache<V> staleWhileRevalidate(Duration softTtl, Executor refreshExecutor) {
+        this.softTtl = softTtl;
+        this.refreshExecutor = refreshExecutor;
+        return this;
+    }
+
+    /**
+     * 开启过期时间随机化
+     *
+     * @param jitter 过期时间最多提前的比例，取值 [0, 1)
+     * @return 当前缓存
+     */
+    public TwoTierCache<V> jitter(double jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * 依次从一级缓存、二级缓存读取，都未命中时加载
+     *
+     * @param key    缓存键
+     * @param loader 数据源
+     * @return 缓存值，数据源返回 null 时为 null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String key, Supplier<V> loader) {
+        CacheEntry<V> entry = localCache.getIfPresent(key);
+        if (entry != null) {
+            localHits.increment();
+            return revalidate(key, entry, loader);
+        }
+        localMisses.increment();
+
+        try {
+            // 不是 CacheEntry 的旧格式数据视为未命中
+            if (redisTemplate.opsForValue().get(key) instanceof CacheEntry<?> redisEntry) {
+                entry = (CacheEntry<V>) redisEntry;
+            }
+        } catch (Exception e) {
+            log.error("redis get key error", e);
+        }
+        if (entry != null) {
+            redisHits.increment();
+            localCache.put(key, entry);
+            return revalidate(key, entry, loader);
+        }
+        redisMisses.increment();
+
+        doorkeeper.increment(key);
+        return singleFlight(key, () -> admit(key, loader));
+    }
+
+    /**
+     * 条目已软过期时提交后台刷新，同一个键同时只有一个刷新任务
+     */
+    private V revalidate(String key, CacheEntry<V> entry, Supplier<V> loader) {
+        if (refreshExecutor == null || !entry.isStale(clock.millis())) {
+            return entry.getValue();
+        }
+        staleHits.increment();
+        if (refreshing.putIfAbsent(key, Boolean.TRUE) == null) {
+            try {
+                refreshExecutor.execute(() -> refresh(key, loader));
+            } catch (RejectedExecutionException e) {
+                refreshing.remove(key);
+            }
+        }
+        return entry.getValue();
+    }
+
+    private void refresh(String key, Supplier<V> loader) {
+        try {
+            V value = singleFlight(key, loader);
+            if (value != null) {
+                refreshes.increment();
+                put(key, value);
+            }
+        } catch (Exception e) {
+            log.error("cache refresh error", e);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+    private V singleFlight(String key, Supplier<V> loader) {
+        if (singleFlightGroup == null) {
+            return loader.get();
+        }
+        return singleFlightGroup.execute(key, distributed, loader);
+    }
+
+    private V admit(String key, Supplier<V> loader) {
+        V value = loader.get();
+        if (value == null) {
+            return null;
+        }
+        if (doorkeeper.frequency(key) < admitFrequency) {
+            rejects.increment();
+            return value;
+        }
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * 写入两级缓存
+     */
+    public void put(String key, V value) {
+        long softExpireAt = softTtl == null
+                ? Long.MAX_VALUE
+                : clock.millis() + jitter(softTtl, jitter).toMillis();
+        CacheEntry<V> entry = new CacheEntry<>(value, softExpireAt);
+        localCache.put(key, entry);
+        try {
+            redisTemplate.opsForValue().set(key, entry, jitter(redisTtl, jitter));
+        } catch (Exception e) {
+            log.error("redis set key error", e);
+        }
+    }
+
+    /**
+     * 清空本节点的一级缓存
+     */
+    public void invalidateLocal() {
+        localCache.invalidateAll();
+    }
+
+    /**
+     * 在 [ttl * (1 - jitter), ttl] 内随机取过期时间
+     */
+    static Duration jitter(Duration ttl, double jitter) {
+        if (jitter <= 0) {
+            return ttl;
+        }
+        long millis = ttl.toMillis();
+        return Duration.ofMillis(millis - (long) (millis * jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+
+    public CacheStatsVO stats() {
+        CacheStatsVO stats = new CacheStatsVO();
+        stats.setName(name);
+        stats.setLocalSize(localCache.estimatedSize());
+        stats.setLocalHits(localHits.sum());
+        stats.setLocalMisses(localMisses.sum());
+        stats.setRedisHits(redisHits.sum());
+        stats.setRedisMisses(redisMisses.sum());
+        stats.setRejects(rejects.sum());
+        stats.setStaleHits(staleHits.sum());
+        stats.setRefreshes(refreshes.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,143 @@
+package com.pikachu.usercenter.cache;
+
+import com.pikachu.usercenter.config.CacheConfig;
+import com.pikachu.usercenter.mapper.UserMapper;
+import com.pikachu.usercenter.model.entity.User;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个用户的缓存
+ * 分页结果的缓存只保存用户 id，用户信息统一缓存在这里，一次修改只需失效一个键
+ * <p>
+ * 一页用户通过一次 MGET 读取，未命中的用户通过一次 IN 查询加载后批量写回
+ * 缓存的用户不含密码，只用于展示
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class UserEntityCache {
+
+    private static final String KEY_PREFIX = "user-center:user:entity:";
+
+    @Resource
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private CacheConfig cacheConfig;
+
+    /**
+     * 批量读取用户
+     *
+     * @param userIds 用户 id
+     * @return 用户 id 到用户的映射，不存在或已删除的用户不在其中
+     */
+    public Map<Long, User> getAll(Collection<Long> userIds) {
+        Map<Long, User> users = new HashMap<>(userIds.size() * 2);
+        if (userIds.isEmpty()) {
+            return users;
+        }
+
+        List<Long> idList = new ArrayList<>(userIds);
+        List<Object> values = null;
+        try {
+            values = redisTemplate.opsForValue().multiGet(idList.stream().map(UserEntityCache::key).toList());
+        } catch (Exception e) {
+            log.error("redis get key error", e);
+        }
+        List<Long> missingIds = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            Object value = values == null ? null : values.get(i);
+            if (value instanceof User user) {
+                users.put(idList.get(i), user);
+            } else {
+                missingIds.add(idList.get(i));
+            }
+        }
+        if (missingIds.isEmpty()) {
+            return users;
+        }
+
+        List<User> loadedUsers = userMapper.selectBatchIds(missingIds);
+        for (User user : loadedUsers) {
+            user.setPassword(null);
+            users.put(user.getId(), user);
+        }
+        putAll(loadedUsers);
+        return users;
+    }
+
+    /**
+     * 用户信息修改或删除后失效
+     *
+     * @param userId 用户 id
+     */
+    public void invalidate(Long userId) {
+        try {
+            redisTemplate.delete(key(userId));
+        } catch (Exception e) {
+            log.error("redis delete key error", e);
+        }
+    }
+
+    /**
+     * 批量失效
+     *
+     * @param userIds 用户 id
+     */
+    public void invalidateAll(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.delete(userIds.stream().map(UserEntityCache::key).toList());
+        } catch (Exception e) {
+            log.error("redis delete key error", e);
+        }
+    }
+
+    private void putAll(List<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (User user : users) {
+                        // 同一页的用户同时写入，过期时间随机化避免同时过期
+                        Duration ttl = TwoTierCache.jitter(Duration.ofSeconds(cacheConfig.getEntityTtl()),
+                                cacheConfig.getTtlJitter());
+                        ops.opsForValue().set(key(user.getId()), user, ttl);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("redis set key error", e);
+        }
+    }
+
+    private static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+}
@@ -0,0 +1,136 @@
+package com.pikachu.usercenter.cache.codec;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 二进制输入，与 {@link BinaryWriter} 对应
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class BinaryReader {
+
+    private final BinaryRedisSerializer serializer;
+    private final byte[] buffer;
+    private int position;
+    private final int limit;
+
+    BinaryReader(BinaryRedisSerializer serializer, byte[] buffer, int offset, int limit) {
+        this.serializer = serializer;
+        this.buffer = buffer;
+        this.position = offset;
+        this.limit = limit;
+    }
+
+    public int readByte() {
+        checkRemaining(1);
+        return buffer[position++] & 0xFF;
+    }
+
+    public byte[] readBytes() {
+        int length = readVarInt();
+        checkRemaining(length);
+        byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+        position += length;
+        return bytes;
+    }
+
+    public int readVarInt() {
+        return Math.toIntExact(readVarLong());
+    }
+
+    public long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("变长整数格式错误");
+    }
+
+    public long readZigZag() {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    /**
+     * 读取 {@link BinaryWriter#writePresence} 写入的位图
+     */
+    public long readPresence() {
+        return readVarLong();
+    }
+
+    /**
+     * @param presence 位图
+     * @param index    字段序号
+     * @return 该字段是否非 null
+     */
+    public static boolean isPresent(long presence, int index) {
+        return (presence & (1L << index)) != 0;
+    }
+
+    public Date readDate() {
+        return new Date(readZigZag());
+    }
+
+    public LocalDateTime readLocalDateTime() {
+        long epochSecond = readZigZag();
+        return LocalDateTime.ofEpochSecond(epochSecond, readVarInt(), ZoneOffset.UTC);
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        checkRemaining(length);
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public List<String> readStringList() {
+        int size = readVarInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    public Object readValue() {
+        return serializer.readValue(this);
+    }
+
+    /**
+     * 读取并校验格式版本
+     *
+     * @param maxVersion 支持的最高版本
+     * @return 数据的格式版本
+     */
+    public int readVersion(int maxVersion) {
+        int version = readVarInt();
+        if (version < 1 || version > maxVersion) {
+            throw new SerializationException("不支持的格式版本 " + version);
+        }
+        return version;
+    }
+
+    private void checkRemaining(int length) {
+        if (length < 0 || position + length > limit) {
+            throw new SerializationException("数据不完整");
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.pikachu.usercenter.cache.codec;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.pikachu.usercenter.cache.CacheEntry;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.model.entity.Team;
+import com.pikachu.usercenter.model.entity.User;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 二进制 Redis 值序列化
+ * 已注册类型按各自的 {@link ValueCodec} 逐字段编码，不写类名和字段名，未注册的类型退回 JDK 序列化
+ * <p>
+ * 格式：魔数、标志位，压缩时接原始长度，之后为带类型标记的值
+ * 编码结果不小于压缩阈值时使用 LZ4 压缩，压缩后没有变小则保留原样
+ * 不以魔数开头的数据按 JDK 序列化读取，切换前写入的旧数据仍可读出
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class BinaryRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = (byte) 0xB7;
+    private static final int FLAG_LZ4 = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_LONG = 1;
+    private static final int TAG_STRING = 2;
+    private static final int TAG_JDK = 3;
+
+    public static final int TAG_CACHE_ENTRY = 16;
+    public static final int TAG_PAGE = 17;
+    public static final int TAG_USER = 18;
+    public static final int TAG_TEAM = 19;
+
+    private final Map<Class<?>, Registration<?>> registrationsByType = new HashMap<>();
+    private final Map<Integer, Registration<?>> registrationsByTag = new HashMap<>();
+    private final JdkSerializationRedisSerializer jdkSerializer;
+    private final int compressThreshold;
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    /**
+     * @param compressThreshold 压缩阈值（字节），不大于 0 时不压缩
+     * @param classLoader       JDK 序列化使用的类加载器
+     */
+    public BinaryRedisSerializer(int compressThreshold, ClassLoader classLoader) {
+        this.jdkSerializer = new JdkSerializationRedisSerializer(classLoader);
+        this.compressThreshold = compressThreshold;
+        LZ4Factory lz4Factory = LZ4Factory.fastestInstance();
+        this.compressor = lz4Factory.fastCompressor();
+        this.decompressor = lz4Factory.fastDecompressor();
+
+        register(TAG_CACHE_ENTRY, CacheEntry.class, new CacheEntryCodec());
+        PageCodec pageCodec = new PageCodec();
+        register(TAG_PAGE, KeysetPage.class, pageCodec);
+        register(TAG_PAGE, Page.class, pageCodec);
+        register(TAG_USER, User.class, new UserCodec());
+        register(TAG_TEAM, Team.class, new TeamCodec());
+    }
+
+    /**
+     * 注册类型的编解码，只匹配该类本身，不匹配子类
+     * 同一个标记可以注册给多个类型，读取时使用第一次注册的编解码
+     *
+     * @param tag   类型标记，16 以下保留
+     * @param type  类型，需要与编解码的类型一致
+     * @param codec 编解码
+     */
+    public <T> void register(int tag, Class<?> type, ValueCodec<T> codec) {
+        if (tag < 16 || tag > 127) {
+            throw new IllegalArgumentException("tag must be in [16, 127]");
+        }
+        Registration<T> registration = new Registration<>(tag, codec);
+        registrationsByType.put(type, registration);
+        registrationsByTag.putIfAbsent(tag, registration);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        BinaryWriter writer = new BinaryWriter(this);
+        writer.writeValue(value);
+        byte[] body = writer.toByteArray();
+
+        if (compressThreshold > 0 && body.length >= compressThreshold) {
+            byte[] compressed = new byte[compressor.maxCompressedLength(body.length)];
+            int compressedLength = compressor.compress(body, 0, body.length, compressed, 0, compressed.length);
+            BinaryWriter header = new BinaryWriter(this);
+            header.writeByte(MAGIC);
+            header.writeByte(FLAG_LZ4);
+            header.writeVarInt(body.length);
+            byte[] headerBytes = header.toByteArray();
+            if (headerBytes.length + compressedLength < body.length + 2) {
+                byte[] result = new byte[headerBytes.length + compressedLength];
+                System.arraycopy(headerBytes, 0, result, 0, headerBytes.length);
+                System.arraycopy(compressed, 0, result, headerBytes.length, compressedLength);
+                return result;
+            }
+        }
+
+        byte[] result = new byte[body.length + 2];
+        result[0] = MAGIC;
+        result[1] = 0;
+        System.arraycopy(body, 0, result, 2, body.length);
+        return result;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if (bytes.length < 2) {
+            throw new SerializationException("数据不完整");
+        }
+        if ((bytes[1] & FLAG_LZ4) == 0) {
+            return new BinaryReader(this, bytes, 2, bytes.length).readValue();
+        }
+
+        BinaryReader header = new BinaryReader(this, bytes, 2, bytes.length);
+        int length = header.readVarInt();
+        int offset = 2 + varIntLength(length);
+        byte[] body = new byte[length];
+        try {
+            decompressor.decompress(bytes, offset, body, 0, length);
+        } catch (Exception e) {
+            throw new SerializationException("解压失败", e);
+        }
+        return new BinaryReader(this, body, 0, body.length).readValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    void writeValue(BinaryWriter out, Object value) {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+            return;
+        }
+        if (value instanceof Long longValue) {
+            out.writeByte(TAG_LONG);
+            out.writeZigZag(longValue);
+            return;
+        }
+        if (value instanceof String stringValue) {
+            out.writeByte(TAG_STRING);
+            out.writeString(stringValue);
+            return;
+        }
+        Registration<Object> registration = (Registration<Object>) registrationsByType.get(value.getClass());
+        if (registration != null) {
+            out.writeByte(registration.tag());
+            registration.codec().write(out, value);
+            return;
+        }
+        out.writeByte(TAG_JDK);
+        out.writeBytes(jdkSerializer.serialize(value));
+    }
+
+    Object readValue(BinaryReader in) {
+        int tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_LONG:
+                return in.readZigZag();
+            case TAG_STRING:
+                return in.readString();
+            case TAG_JDK:
+                return jdkSerializer.deserialize(in.readBytes());
+            default:
+                Registration<?> registration = registrationsByTag.get(tag);
+                if (registration == null) {
+                    throw new SerializationException("未知的类型标记 " + tag);
+                }
+                return registration.codec().read(in);
+        }
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private record Registration<T>(int tag, ValueCodec<T> codec) {
+    }
+}
@@ -0,0 +1,120 @@
+package com.pikachu.usercenter.cache.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 二进制输出
+ * 整数使用变长编码，有符号整数先做 ZigZag 变换，绝对值小的数只占 1 个字节
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class BinaryWriter {
+
+    private final BinaryRedisSerializer serializer;
+    private byte[] buffer = new byte[256];
+    private int position;
+
+    BinaryWriter(BinaryRedisSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    public void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * 写入非负整数
+     */
+    public void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 写入无符号长整数
+     */
+    public void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * 写入有符号长整数
+     */
+    public void writeZigZag(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    public void writeBoolean(boolean value) {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * 写入各字段是否非 null 的位图，之后只需写入非 null 的字段
+     *
+     * @param fields 各字段的值，最多 64 个
+     */
+    public void writePresence(Object... fields) {
+        long mask = 0;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] != null) {
+                mask |= 1L << i;
+            }
+        }
+        writeVarLong(mask);
+    }
+
+    public void writeDate(Date value) {
+        writeZigZag(value.getTime());
+    }
+
+    public void writeLocalDateTime(LocalDateTime value) {
+        writeZigZag(value.toEpochSecond(ZoneOffset.UTC));
+        writeVarInt(value.getNano());
+    }
+
+    public void writeString(String value) {
+        writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void writeStringList(List<String> values) {
+        writeVarInt(values.size());
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    /**
+     * 写入任意值，类型由 {@link BinaryRedisSerializer} 中注册的编解码决定
+     */
+    public void writeValue(Object value) {
+        serializer.writeValue(this, value);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+        }
+    }
+}
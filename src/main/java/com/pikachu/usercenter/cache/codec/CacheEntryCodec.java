@@ -0,0 +1,28 @@
+package com.pikachu.usercenter.cache.codec;
+
+import com.pikachu.usercenter.cache.CacheEntry;
+
+/**
+ * {@link CacheEntry} 编解码
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class CacheEntryCodec implements ValueCodec<CacheEntry<?>> {
+
+    private static final int VERSION = 1;
+
+    @Override
+    public void write(BinaryWriter out, CacheEntry<?> entry) {
+        out.writeVarInt(VERSION);
+        out.writeZigZag(entry.getSoftExpireAt());
+        out.writeValue(entry.getValue());
+    }
+
+    @Override
+    public CacheEntry<?> read(BinaryReader in) {
+        in.readVersion(VERSION);
+        long softExpireAt = in.readZigZag();
+        return new CacheEntry<>(in.readValue(), softExpireAt);
+    }
+}
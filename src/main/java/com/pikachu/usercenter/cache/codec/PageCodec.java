@@ -0,0 +1,58 @@
+package com.pikachu.usercenter.cache.codec;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.pikachu.usercenter.common.KeysetPage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分页结果编解码
+ * 只保存页码、条数、总数、游标及记录，排序等查询参数不保存；读出的对象均为 {@link KeysetPage}
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class PageCodec implements ValueCodec<Page<?>> {
+
+    private static final int VERSION = 1;
+
+    @Override
+    public void write(BinaryWriter out, Page<?> page) {
+        String nextCursor = page instanceof KeysetPage<?> keysetPage ? keysetPage.getNextCursor() : null;
+        out.writeVarInt(VERSION);
+        out.writeVarLong(page.getCurrent());
+        out.writeVarLong(page.getSize());
+        out.writeVarLong(page.getTotal());
+        out.writeBoolean(page.searchCount());
+        out.writePresence(nextCursor);
+        if (nextCursor != null) {
+            out.writeString(nextCursor);
+        }
+        List<?> records = page.getRecords();
+        out.writeVarInt(records.size());
+        for (Object record : records) {
+            out.writeValue(record);
+        }
+    }
+
+    @Override
+    public Page<?> read(BinaryReader in) {
+        in.readVersion(VERSION);
+        long current = in.readVarLong();
+        long size = in.readVarLong();
+        long total = in.readVarLong();
+        boolean searchCount = in.readBoolean();
+        KeysetPage<Object> page = new KeysetPage<>(current, size, total, searchCount);
+        if (BinaryReader.isPresent(in.readPresence(), 0)) {
+            page.setNextCursor(in.readString());
+        }
+        int count = in.readVarInt();
+        List<Object> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(in.readValue());
+        }
+        page.setRecords(records);
+        return page;
+    }
+}
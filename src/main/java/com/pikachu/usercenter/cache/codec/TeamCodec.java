@@ -0,0 +1,119 @@
+package com.pikachu.usercenter.cache.codec;
+
+import com.pikachu.usercenter.model.entity.Team;
+
+import static com.pikachu.usercenter.cache.codec.BinaryReader.isPresent;
+
+/**
+ * {@link Team} 编解码
+ * 不保存队伍密码，缓存中读出的队伍密码均为 null
+ * 版本 2 增加队伍人数，版本 3 增加乐观锁版本号，旧版本的数据读出后新增字段为 null
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class TeamCodec implements ValueCodec<Team> {
+
+    private static final int VERSION = 3;
+
+    @Override
+    public void write(BinaryWriter out, Team team) {
+        out.writeVarInt(VERSION);
+        out.writePresence(team.getId(), team.getName(), team.getDescription(), team.getMaxNumber(),
+                team.getExpireTime(), team.getUserId(), team.getCreateUserId(), team.getStatus(),
+                team.getTags(), team.getCreateTime(), team.getUpdateTime(), team.getIsDelete(),
+                team.getMemberCount(), team.getVersion());
+        if (team.getId() != null) {
+            out.writeVarLong(team.getId());
+        }
+        if (team.getName() != null) {
+            out.writeString(team.getName());
+        }
+        if (team.getDescription() != null) {
+            out.writeString(team.getDescription());
+        }
+        if (team.getMaxNumber() != null) {
+            out.writeZigZag(team.getMaxNumber());
+        }
+        if (team.getExpireTime() != null) {
+            out.writeDate(team.getExpireTime());
+        }
+        if (team.getUserId() != null) {
+            out.writeVarLong(team.getUserId());
+        }
+        if (team.getCreateUserId() != null) {
+            out.writeVarLong(team.getCreateUserId());
+        }
+        if (team.getStatus() != null) {
+            out.writeZigZag(team.getStatus());
+        }
+        if (team.getTags() != null) {
+            out.writeStringList(team.getTags());
+        }
+        if (team.getCreateTime() != null) {
+            out.writeDate(team.getCreateTime());
+        }
+        if (team.getUpdateTime() != null) {
+            out.writeDate(team.getUpdateTime());
+        }
+        if (team.getIsDelete() != null) {
+            out.writeBoolean(team.getIsDelete());
+        }
+        if (team.getMemberCount() != null) {
+            out.writeZigZag(team.getMemberCount());
+        }
+        if (team.getVersion() != null) {
+            out.writeZigZag(team.getVersion());
+        }
+    }
+
+    @Override
+    public Team read(BinaryReader in) {
+        in.readVersion(VERSION);
+        long presence = in.readPresence();
+        Team team = new Team();
+        if (isPresent(presence, 0)) {
+            team.setId(in.readVarLong());
+        }
+        if (isPresent(presence, 1)) {
+            team.setName(in.readString());
+        }
+        if (isPresent(presence, 2)) {
+            team.setDescription(in.readString());
+        }
+        if (isPresent(presence, 3)) {
+            team.setMaxNumber((int) in.readZigZag());
+        }
+        if (isPresent(presence, 4)) {
+            team.setExpireTime(in.readDate());
+        }
+        if (isPresent(presence, 5)) {
+            team.setUserId(in.readVarLong());
+        }
+        if (isPresent(presence, 6)) {
+            team.setCreateUserId(in.readVarLong());
+        }
+        if (isPresent(presence, 7)) {
+            team.setStatus((int) in.readZigZag());
+        }
+        if (isPresent(presence, 8)) {
+            team.setTags(in.readStringList());
+        }
+        if (isPresent(presence, 9)) {
+            team.setCreateTime(in.readDate());
+        }
+        if (isPresent(presence, 10)) {
+            team.setUpdateTime(in.readDate());
+        }
+        if (isPresent(presence, 11)) {
+            team.setIsDelete(in.readBoolean());
+        }
+        if (isPresent(presence, 12)) {
+            team.setMemberCount((int) in.readZigZag());
+        }
+        if (isPresent(presence, 13)) {
+            team.setVersion((int) in.readZigZag());
+        }
+        return team;
+    }
+}
@@ -0,0 +1,131 @@
+package com.pikachu.usercenter.cache.codec;
+
+import com.pikachu.usercenter.model.entity.User;
+
+import static com.pikachu.usercenter.cache.codec.BinaryReader.isPresent;
+
+/**
+ * {@link User} 编解码
+ * 不保存密码，缓存中读出的用户密码均为 null
+ * 版本 2 增加已加入的队伍数，版本 1 的数据读出后该字段为 null
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class UserCodec implements ValueCodec<User> {
+
+    private static final int VERSION = 2;
+
+    @Override
+    public void write(BinaryWriter out, User user) {
+        out.writeVarInt(VERSION);
+        out.writePresence(user.getId(), user.getAccount(), user.getNickname(), user.getAvatarUrl(),
+                user.getProfile(), user.getGender(), user.getAge(), user.getPhone(), user.getEmail(),
+                user.getStatus(), user.getCreateTime(), user.getUpdateTime(), user.getIsDelete(),
+                user.getRole(), user.getTags(), user.getJoinedTeamCount());
+        if (user.getId() != null) {
+            out.writeVarLong(user.getId());
+        }
+        if (user.getAccount() != null) {
+            out.writeString(user.getAccount());
+        }
+        if (user.getNickname() != null) {
+            out.writeString(user.getNickname());
+        }
+        if (user.getAvatarUrl() != null) {
+            out.writeString(user.getAvatarUrl());
+        }
+        if (user.getProfile() != null) {
+            out.writeString(user.getProfile());
+        }
+        if (user.getGender() != null) {
+            out.writeBoolean(user.getGender());
+        }
+        if (user.getAge() != null) {
+            out.writeZigZag(user.getAge());
+        }
+        if (user.getPhone() != null) {
+            out.writeString(user.getPhone());
+        }
+        if (user.getEmail() != null) {
+            out.writeString(user.getEmail());
+        }
+        if (user.getStatus() != null) {
+            out.writeZigZag(user.getStatus());
+        }
+        if (user.getCreateTime() != null) {
+            out.writeLocalDateTime(user.getCreateTime());
+        }
+        if (user.getUpdateTime() != null) {
+            out.writeLocalDateTime(user.getUpdateTime());
+        }
+        if (user.getIsDelete() != null) {
+            out.writeBoolean(user.getIsDelete());
+        }
+        if (user.getRole() != null) {
+            out.writeZigZag(user.getRole());
+        }
+        if (user.getTags() != null) {
+            out.writeStringList(user.getTags());
+        }
+        if (user.getJoinedTeamCount() != null) {
+            out.writeZigZag(user.getJoinedTeamCount());
+        }
+    }
+
+    @Override
+    public User read(BinaryReader in) {
+        in.readVersion(VERSION);
+        long presence = in.readPresence();
+        User user = new User();
+        if (isPresent(presence, 0)) {
+            user.setId(in.readVarLong());
+        }
+        if (isPresent(presence, 1)) {
+            user.setAccount(in.readString());
+        }
+        if (isPresent(presence, 2)) {
+            user.setNickname(in.readString());
+        }
+        if (isPresent(presence, 3)) {
+            user.setAvatarUrl(in.readString());
+        }
+        if (isPresent(presence, 4)) {
+            user.setProfile(in.readString());
+        }
+        if (isPresent(presence, 5)) {
+            user.setGender(in.readBoolean());
+        }
+        if (isPresent(presence, 6)) {
+            user.setAge((int) in.readZigZag());
+        }
+        if (isPresent(presence, 7)) {
+            user.setPhone(in.readString());
+        }
+        if (isPresent(presence, 8)) {
+            user.setEmail(in.readString());
+        }
+        if (isPresent(presence, 9)) {
+            user.setStatus((int) in.readZigZag());
+        }
+        if (isPresent(presence, 10)) {
+            user.setCreateTime(in.readLocalDateTime());
+        }
+        if (isPresent(presence, 11)) {
+            user.setUpdateTime(in.readLocalDateTime());
+        }
+        if (isPresent(presence, 12)) {
+            user.setIsDelete(in.readBoolean());
+        }
+        if (isPresent(presence, 13)) {
+            user.setRole((int) in.readZigZag());
+        }
+        if (isPresent(presence, 14)) {
+            user.setTags(in.readStringList());
+        }
+        if (isPresent(presence, 15)) {
+            user.setJoinedTeamCount((int) in.readZigZag());
+        }
+        return user;
+    }
+}
@@ -0,0 +1,27 @@
+package com.pikachu.usercenter.cache.codec;
+
+/**
+ * 缓存值的二进制编解码
+ * 实现类自行决定字段顺序，并在开头写入格式版本，字段增减时提升版本并兼容读取旧版本
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public interface ValueCodec<T> {
+
+    /**
+     * 编码
+     *
+     * @param out   输出
+     * @param value 非 null 的值
+     */
+    void write(BinaryWriter out, T value);
+
+    /**
+     * 解码
+     *
+     * @param in 输入
+     * @return 解码后的值
+     */
+    T read(BinaryReader in);
+}
@@ -0,0 +1,63 @@
+package com.pikachu.usercenter.common;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 支持游标的分页结果
+ * 在普通分页结果的基础上返回下一页的游标及是否有下一页，没有下一页时游标为 null
+ * 不统计总数时 total 为 0
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Getter
+@Setter
+public class KeysetPage<T> extends Page<T> {
+    @Serial
+    private static final long serialVersionUID = 6097781370386025614L;
+
+    /**
+     * 下一页游标
+     */
+    private String nextCursor;
+
+    public KeysetPage() {
+    }
+
+    public KeysetPage(long current, long size) {
+        super(current, size);
+    }
+
+    public KeysetPage(long current, long size, long total, boolean searchCount) {
+        super(current, size, total, searchCount);
+    }
+
+    /**
+     * @return 是否有下一页
+     */
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+
+    /**
+     * 转换为另一类型的分页结果
+     * 与 {@link Page#convert(Function)} 不同，不修改当前对象
+     *
+     * @param mapper 转换函数
+     * @return 新的分页结果
+     */
+    public <R> KeysetPage<R> map(Function<? super T, ? extends R> mapper) {
+        KeysetPage<R> page = new KeysetPage<>(getCurrent(), getSize(), getTotal(), searchCount());
+        List<R> records = getRecords().stream().map(mapper).collect(Collectors.toList());
+        page.setRecords(records);
+        page.setNextCursor(nextCursor);
+        return page;
+    }
+}
@@ -0,0 +1,58 @@
+package com.pikachu.usercenter.common;
+
+import com.pikachu.usercenter.exception.BusinessException;
+import com.pikachu.usercenter.model.enums.ResponseCode;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 分页游标
+ * 游标记录上一页最后一条记录的 id，下一页从该 id 之后开始查询，对客户端不透明
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public final class PageCursor {
+
+    private static final String PREFIX = "id:";
+
+    private PageCursor() {
+    }
+
+    /**
+     * 生成游标
+     *
+     * @param lastId 本页最后一条记录的 id
+     * @return 游标
+     */
+    public static String encode(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标
+     *
+     * @param cursor 游标
+     * @return 上一页最后一条记录的 id，游标为空时返回 null
+     */
+    public static Long decode(String cursor) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        try {
+            String text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (text.startsWith(PREFIX)) {
+                long lastId = Long.parseLong(text.substring(PREFIX.length()));
+                if (lastId >= 0) {
+                    return lastId;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // 非法游标，统一按参数错误处理
+        }
+        throw new BusinessException(ResponseCode.PARAMS_ERROR, "游标无效");
+    }
+}
@@ -8,6 +8,7 @@ import java.io.Serializable;
 
 /**
  * 分页请求参数封装类
+ * 可按页码分页，也可按上一页返回的游标分页，游标分页的耗时与页数无关
  *
  * @author 笨蛋皮卡丘
  * @version 1.0
@@ -20,4 +21,20 @@ public class PageParams implements Serializable {
     protected Long current = 1L;
     @Range(min = 1, max = 20, message = "每页最多20条")
     protected Long size = 5L;
+    /**
+     * 上一页返回的游标，不为空时忽略页码，从游标处查询下一页
+     */
+    protected String cursor;
+    /**
+     * 是否返回总数，总数按查询条件缓存；为 false 时只返回是否有下一页
+     */
+    protected Boolean count = true;
+
+    public PageParams() {
+    }
+
+    public PageParams(Long current, Long size) {
+        this.current = current;
+        this.size = size;
+    }
 }
@@ -0,0 +1,155 @@
+package com.pikachu.usercenter.config;
+
+import com.pikachu.usercenter.cache.CacheRefreshExecutor;
+import com.pikachu.usercenter.cache.SingleFlightGroup;
+import com.pikachu.usercenter.cache.TwoTierCache;
+import com.pikachu.usercenter.common.KeysetPage;
+import lombok.Data;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 两级缓存配置
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Data
+@SpringBootConfiguration
+@ConfigurationProperties(prefix = "cache-config")
+public class CacheConfig {
+
+    /**
+     * 一级缓存最大条目数
+     */
+    private Long localSize = 10000L;
+
+    /**
+     * 一级缓存过期时间（秒）
+     */
+    private Long localTtl = 60L;
+
+    /**
+     * 二级缓存过期时间（秒）
+     */
+    private Long redisTtl = 86400L;
+
+    /**
+     * 准入阈值，键的近期访问次数达到该值后才写入缓存
+     */
+    private Integer admitFrequency = 2;
+
+    /**
+     * 分页结果软过期时间（秒），超过后先返回旧结果再在后台刷新，超过 redisTtl 后才需要同步查询
+     */
+    private Long softTtl = 3600L;
+
+    /**
+     * 分页总数缓存软过期时间（秒），超过后在后台重新 COUNT，硬过期时间为其两倍
+     */
+    private Long countTtl = 300L;
+
+    /**
+     * 过期时间随机提前的最大比例，同时写入的键在 [ttl * (1 - ttlJitter), ttl] 内陆续过期
+     */
+    private Double ttlJitter = 0.1;
+
+    /**
+     * 后台刷新线程数
+     */
+    private Integer refreshThreads = 2;
+
+    /**
+     * 后台刷新队列长度，队列满时放弃刷新，继续返回旧值
+     */
+    private Integer refreshQueueSize = 1000;
+
+    /**
+     * 单个用户缓存过期时间（秒）
+     */
+    private Long entityTtl = 3600L;
+
+    /**
+     * Redis 值的序列化方式，binary：二进制编码，未注册的类型及旧数据使用 JDK 序列化；jdk：全部使用 JDK 序列化
+     */
+    private String codec = "binary";
+
+    /**
+     * 二进制编码的压缩阈值（字节），编码结果不小于该值时使用 LZ4 压缩，不大于 0 时不压缩
+     */
+    private Integer compressThreshold = 1024;
+
+    /**
+     * 缓存未命中时是否跨节点合并回源，默认只在节点内合并
+     */
+    private Boolean singleFlightDistributed = false;
+
+    /**
+     * 跨节点合并时等待其它节点加载的最长时间（毫秒），超时后本节点自行加载
+     */
+    private Long singleFlightWait = 3000L;
+
+    /**
+     * 跨节点合并时加载结果在 Redis 中的保留时间（毫秒）
+     */
+    private Long singleFlightResultTtl = 5000L;
+
+    /**
+     * 后台刷新线程池，应用关闭时停止
+     */
+    @Bean(destroyMethod = "shutdown")
+    public CacheRefreshExecutor cacheRefreshExecutor() {
+        return new CacheRefreshExecutor(refreshThreads, refreshQueueSize);
+    }
+
+    @Bean
+    public SingleFlightGroup singleFlightGroup(RedissonClient redissonClient,
+                                              RedisTemplate<String, Object> redisTemplate) {
+        return new SingleFlightGroup(redissonClient, redisTemplate,
+                Duration.ofMillis(singleFlightWait), Duration.ofMillis(singleFlightResultTtl));
+    }
+
+    @Bean
+    public TwoTierCache<KeysetPage<Long>> userSearchCache(RedisTemplate<String, Object> redisTemplate,
+                                                    SingleFlightGroup singleFlightGroup,
+                                                    CacheRefreshExecutor cacheRefreshExecutor) {
+        return new TwoTierCache<KeysetPage<Long>>("user-search", redisTemplate, localSize,
+                Duration.ofSeconds(localTtl), Duration.ofSeconds(redisTtl), admitFrequency,
+                singleFlightGroup, singleFlightDistributed)
+                .staleWhileRevalidate(Duration.ofSeconds(softTtl), cacheRefreshExecutor.executor())
+                .jitter(ttlJitter);
+    }
+
+    /**
+     * 管理员用户、队伍列表的 id 分页缓存，记录在读取时按 id 批量加载
+     */
+    @Bean
+    public TwoTierCache<KeysetPage<Long>> adminListCache(RedisTemplate<String, Object> redisTemplate,
+                                                         SingleFlightGroup singleFlightGroup,
+                                                         CacheRefreshExecutor cacheRefreshExecutor) {
+        return new TwoTierCache<KeysetPage<Long>>("admin-list", redisTemplate, localSize,
+                Duration.ofSeconds(localTtl), Duration.ofSeconds(redisTtl), admitFrequency,
+                singleFlightGroup, singleFlightDistributed)
+                .staleWhileRevalidate(Duration.ofSeconds(softTtl), cacheRefreshExecutor.executor())
+                .jitter(ttlJitter);
+    }
+
+    /**
+     * 分页总数缓存，与分页结果使用相同的准入阈值，只被统计过一次的查询条件不写入缓存
+     */
+    @Bean
+    public TwoTierCache<Long> countCache(RedisTemplate<String, Object> redisTemplate,
+                                         SingleFlightGroup singleFlightGroup,
+                                         CacheRefreshExecutor cacheRefreshExecutor) {
+        return new TwoTierCache<Long>("count", redisTemplate, localSize,
+                Duration.ofSeconds(countTtl), Duration.ofSeconds(countTtl * 2), admitFrequency,
+                singleFlightGroup, singleFlightDistributed)
+                .staleWhileRevalidate(Duration.ofSeconds(countTtl), cacheRefreshExecutor.executor())
+                .jitter(ttlJitter);
+    }
+}
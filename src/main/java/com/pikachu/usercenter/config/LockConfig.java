@@ -0,0 +1,59 @@
+package com.pikachu.usercenter.config;
+
+import com.pikachu.usercenter.lock.LockManager;
+import com.pikachu.usercenter.lock.RedissonLockManager;
+import com.pikachu.usercenter.lock.StripedLockManager;
+import com.pikachu.usercenter.lock.TwoLevelLockManager;
+import lombok.Data;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * 业务锁配置
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Data
+@SpringBootConfiguration
+@ConfigurationProperties(prefix = "lock-config")
+public class LockConfig {
+
+    /**
+     * 加锁方式
+     */
+    private Mode mode = Mode.REDISSON;
+
+    /**
+     * 本地分段锁的分段数
+     */
+    private Integer stripes = 1024;
+
+    @Bean
+    public LockManager lockManager(ObjectProvider<RedissonClient> redissonClient) {
+        return switch (mode) {
+            case LOCAL -> new StripedLockManager(stripes);
+            case TWO_LEVEL -> new TwoLevelLockManager(new StripedLockManager(stripes),
+                    new RedissonLockManager(redissonClient.getObject()));
+            default -> new RedissonLockManager(redissonClient.getObject());
+        };
+    }
+
+    public enum Mode {
+        /**
+         * Redisson 分布式锁
+         */
+        REDISSON,
+        /**
+         * 本地分段锁，只适用于单节点部署
+         */
+        LOCAL,
+        /**
+         * 先加本地分段锁再加分布式锁，本节点内的竞争不访问 Redis
+         */
+        TWO_LEVEL
+    }
+}
@@ -0,0 +1,96 @@
+package com.pikachu.usercenter.config;
+
+import com.pikachu.usercenter.index.HttpMatchTransport;
+import com.pikachu.usercenter.index.LshUserMatcher;
+import com.pikachu.usercenter.index.MatchTransport;
+import com.pikachu.usercenter.index.ShardedUserMatcher;
+import com.pikachu.usercenter.index.UserMatcher;
+import com.pikachu.usercenter.index.UserTagIndex;
+import lombok.Data;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户匹配配置
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Data
+@SpringBootConfiguration
+@ConfigurationProperties(prefix = "match-config")
+public class MatchConfig {
+
+    /**
+     * 匹配模式
+     */
+    private Mode mode = Mode.EXACT;
+
+    /**
+     * LSH 分段数，越大召回率越高、候选越多
+     */
+    private Integer lshBands = 8;
+
+    /**
+     * LSH 每个分段的 MinHash 个数（1~5），越大候选越少、召回率越低
+     */
+    private Integer lshRows = 4;
+
+    /**
+     * 分片匹配的全部节点地址（包含 context-path），顺序即分片序号，各节点的配置必须一致
+     */
+    private List<String> shardNodes = new ArrayList<>();
+
+    /**
+     * 本节点在 shardNodes 中的序号
+     */
+    private Integer shardSelf = 0;
+
+    /**
+     * 节点间调用的共享令牌
+     */
+    private String shardToken;
+
+    /**
+     * 等待其它节点的超时时间（毫秒），超时的分片由本节点补算
+     */
+    private Long shardTimeout = 200L;
+
+    /**
+     * 用户标签索引快照文件路径，为空时不使用快照；启用时应使用绝对路径
+     */
+    private String snapshotPath;
+
+    @Bean
+    public UserMatcher userMatcher(UserTagIndex userTagIndex) {
+        if (mode == Mode.LSH) {
+            return new LshUserMatcher(userTagIndex, lshBands, lshRows);
+        }
+        if (mode == Mode.SHARDED) {
+            userTagIndex.own(shardSelf, shardNodes.size());
+            MatchTransport transport = new HttpMatchTransport(shardToken, Duration.ofMillis(shardTimeout));
+            return new ShardedUserMatcher(userTagIndex, transport, shardNodes, shardSelf, shardTimeout);
+        }
+        return userTagIndex::match;
+    }
+
+    public enum Mode {
+        /**
+         * 精确匹配，扫描全部用户
+         */
+        EXACT,
+        /**
+         * 近似匹配，只对 MinHash / LSH 候选计算距离
+         */
+        LSH,
+        /**
+         * 分片匹配，各节点只扫描自己负责的用户，由接收请求的节点合并结果
+         */
+        SHARDED
+    }
+}
@@ -1,5 +1,7 @@
 package com.pikachu.usercenter.config;
 
+import com.pikachu.usercenter.cache.codec.BinaryRedisSerializer;
+import jakarta.annotation.Resource;
 import org.springframework.boot.SpringBootConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -12,10 +14,18 @@ import org.springframework.data.redis.serializer.RedisSerializer;
  */
 @SpringBootConfiguration
 public class RedisTemplateConfig {
+
+    @Resource
+    private CacheConfig cacheConfig;
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setKeySerializer(RedisSerializer.string());
+        if ("binary".equals(cacheConfig.getCodec())) {
+            redisTemplate.setValueSerializer(new BinaryRedisSerializer(cacheConfig.getCompressThreshold(),
+                    RedisTemplateConfig.class.getClassLoader()));
+        }
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         return redisTemplate;
     }
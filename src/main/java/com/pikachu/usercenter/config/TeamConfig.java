@@ -0,0 +1,62 @@
+package com.pikachu.usercenter.config;
+
+import lombok.Data;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 队伍配置
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Data
+@SpringBootConfiguration
+@ConfigurationProperties(prefix = "team-config")
+public class TeamConfig {
+
+    /**
+     * 每个用户最多加入的队伍数（含自己创建的队伍），不大于 0 时不限制
+     */
+    private Integer maxJoinedTeams = 10;
+
+    /**
+     * Redis 中队伍名额及用户已加入队伍数的过期时间（秒），每次预占名额时续期
+     */
+    private Long seatTtl = 86400L;
+
+    /**
+     * 修改、转让队伍时的最大尝试次数，每次版本号冲突后重新读取队伍再试
+     */
+    private Integer updateRetries = 3;
+
+    /**
+     * 可浏览队伍索引从数据库重建的间隔（秒），重建只追加漏同步的队伍
+     */
+    private Long activeRebuildInterval = 86400L;
+
+    /**
+     * 过期队伍清理的时间轮每格时长（毫秒），也是检查到期的间隔
+     */
+    private Long sweepTick = 1000L;
+
+    /**
+     * 过期队伍清理的时间轮每层格数
+     */
+    private Integer sweepWheelSize = 60;
+
+    /**
+     * 从数据库加载即将过期的队伍的间隔（毫秒），每次加载两个间隔内过期的队伍
+     */
+    private Long sweepLoadInterval = 300000L;
+
+    /**
+     * 每次最多加载的队伍数，积压的已过期队伍分多次加载
+     */
+    private Integer sweepLoadLimit = 10000;
+
+    /**
+     * 每个事务中清理的队伍数
+     */
+    private Integer sweepBatchSize = 100;
+}
@@ -1,17 +1,22 @@
 package com.pikachu.usercenter.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.pikachu.usercenter.common.PageParams;
 import com.pikachu.usercenter.model.dto.request.admin.TeamUpdateRequestAdmin;
 import com.pikachu.usercenter.model.dto.request.admin.UserUpdateRequestAdmin;
 import com.pikachu.usercenter.model.dto.response.BaseResponse;
 import com.pikachu.usercenter.model.entity.Team;
 import com.pikachu.usercenter.model.entity.User;
+import com.pikachu.usercenter.model.vo.CacheStatsVO;
+import com.pikachu.usercenter.model.vo.SingleFlightStatsVO;
 import com.pikachu.usercenter.service.AdminService;
 import com.pikachu.usercenter.utils.ResultUtils;
 import jakarta.annotation.Resource;
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * @author 笨蛋皮卡丘
  * @version 1.0
@@ -24,16 +29,14 @@ public class AdminController {
     private AdminService adminService;
 
     @GetMapping("/user/list")
-    public BaseResponse<IPage<User>> listUser(@RequestParam(defaultValue = "1") Long current,
-                                              @RequestParam(defaultValue = "5") Long size) {
-        IPage<User> userIPage = adminService.listUser(current, size);
+    public BaseResponse<IPage<User>> listUser(@Valid PageParams pageParams) {
+        IPage<User> userIPage = adminService.listUser(pageParams);
         return ResultUtils.success(userIPage);
     }
 
     @GetMapping("/team/list")
-    public BaseResponse<IPage<Team>> listTeam(@RequestParam(defaultValue = "1") Long current,
-                                              @RequestParam(defaultValue = "5") Long size) {
-        IPage<Team> teamIPage = adminService.listTeam(current, size);
+    public BaseResponse<IPage<Team>> listTeam(@Valid PageParams pageParams) {
+        IPage<Team> teamIPage = adminService.listTeam(pageParams);
         return ResultUtils.success(teamIPage);
     }
 
@@ -60,4 +63,14 @@ public class AdminController {
         adminService.deleteTeam(teamId);
         return ResultUtils.success(true);
     }
+
+    @GetMapping("/cache/stats")
+    public BaseResponse<List<CacheStatsVO>> getCacheStats() {
+        return ResultUtils.success(adminService.getCacheStats());
+    }
+
+    @GetMapping("/single-flight/stats")
+    public BaseResponse<SingleFlightStatsVO> getSingleFlightStats() {
+        return ResultUtils.success(adminService.getSingleFlightStats());
+    }
 }
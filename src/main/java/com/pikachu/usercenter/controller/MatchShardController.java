@@ -0,0 +1,71 @@
+package com.pikachu.usercenter.controller;
+
+import com.pikachu.usercenter.config.MatchConfig;
+import com.pikachu.usercenter.exception.BusinessException;
+import com.pikachu.usercenter.index.HttpMatchTransport;
+import com.pikachu.usercenter.index.TopKSelector;
+import com.pikachu.usercenter.index.UserTagIndex;
+import com.pikachu.usercenter.model.dto.response.BaseResponse;
+import com.pikachu.usercenter.model.enums.ResponseCode;
+import com.pikachu.usercenter.model.vo.ShardMatchVO;
+import com.pikachu.usercenter.utils.ResultUtils;
+import jakarta.annotation.Resource;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * 分片匹配节点间接口
+ * 只供其它节点调用，不经过登录拦截，通过共享令牌鉴权
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@RestController
+@RequestMapping("/internal/match")
+public class MatchShardController {
+
+    @Resource
+    private UserTagIndex userTagIndex;
+    @Resource
+    private MatchConfig matchConfig;
+
+    /**
+     * 在本节点负责的分片内匹配
+     *
+     * @param token      共享令牌
+     * @param shard      分片序号
+     * @param shardCount 分片总数
+     * @param selfId     当前用户 id
+     * @param tags       当前用户标签名，由本节点的标签字典计算位图
+     * @param k          匹配个数
+     * @return 该分片内的 Top-K 结果
+     */
+    @GetMapping("/shard")
+    public BaseResponse<ShardMatchVO> matchShard(@RequestHeader(value = HttpMatchTransport.TOKEN_HEADER,
+                                                         required = false) String token,
+                                                 @RequestParam Integer shard,
+                                                 @RequestParam Integer shardCount,
+                                                 @RequestParam Long selfId,
+                                                 @RequestParam(required = false) List<String> tags,
+                                                 @RequestParam Integer k) {
+        String shardToken = matchConfig.getShardToken();
+        if (matchConfig.getMode() != MatchConfig.Mode.SHARDED || StringUtils.isBlank(shardToken)
+                || token == null || !MessageDigest.isEqual(shardToken.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8))) {
+            throw new BusinessException(ResponseCode.NO_AUTH);
+        }
+        if (shardCount <= 0 || shard < 0 || shard >= shardCount || k <= 0 || k > 100) {
+            throw new BusinessException(ResponseCode.PARAMS_ERROR, "超出限制");
+        }
+        if (!userTagIndex.isReady()) {
+            throw new BusinessException(ResponseCode.SYSTEM_ERROR, "索引未就绪");
+        }
+
+        TopKSelector topK = userTagIndex.match(selfId, userTagIndex.maskOf(tags), k, shard, shardCount);
+        return ResultUtils.success(new ShardMatchVO(topK.sortedIds(), topK.sortedDistances()));
+    }
+}
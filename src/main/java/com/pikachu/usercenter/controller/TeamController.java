@@ -1,6 +1,7 @@
 package com.pikachu.usercenter.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.pikachu.usercenter.common.PageParams;
 import com.pikachu.usercenter.model.dto.request.team.TeamCreateRequest;
 import com.pikachu.usercenter.model.dto.request.team.TeamJoinRequest;
 import com.pikachu.usercenter.model.dto.request.team.TeamUpdateRequest;
@@ -84,15 +85,13 @@ public class TeamController {
     /**
      * 搜索队伍
      * @param keyword 搜索关键词
-     * @param current 页数
-     * @param size 每页记录数
+     * @param pageParams 分页参数，页码或上一页返回的游标
      * @return
      */
     @GetMapping("/search")
     public BaseResponse<IPage<TeamUserVO>> searchTeam(@RequestParam(required = false) String keyword,
-                                                      @RequestParam(defaultValue = "1") Long current,
-                                                      @RequestParam(defaultValue = "5") Long size) {
-        IPage<TeamUserVO> teamUserVOIPage = teamService.searchTeams(current, size, keyword);
+                                                      @Valid PageParams pageParams) {
+        IPage<TeamUserVO> teamUserVOIPage = teamService.searchTeams(pageParams, keyword);
         return ResultUtils.success(teamUserVOIPage);
     }
 
@@ -1,6 +1,7 @@
 package com.pikachu.usercenter.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.pikachu.usercenter.common.PageParams;
 import com.pikachu.usercenter.exception.BusinessException;
 import com.pikachu.usercenter.model.dto.request.user.UserLoginRequest;
 import com.pikachu.usercenter.model.dto.request.user.UserRegisterRequest;
@@ -99,16 +100,14 @@ public class UserController {
      * 搜索用户
      *
      * @param nickname 用于搜索的昵称
-     * @param tags     用于搜索的标签列表
-     * @param current  页数
-     * @param size     每页记录数
+     * @param tags       用于搜索的标签列表
+     * @param pageParams 分页参数，页码或上一页返回的游标
      * @return
      */
     @GetMapping("/search")
     public BaseResponse<IPage<UserVO>> searchUsers(String nickname,
                                                    String[] tags,
-                                                   @RequestParam(defaultValue = "1") Long current,
-                                                   @RequestParam(defaultValue = "5") Long size) {
+                                                   @Valid PageParams pageParams) {
         Map<String, Object> conditions = new HashMap<>();
 
         if (!StringUtils.isBlank(nickname)) {
@@ -117,7 +116,7 @@ public class UserController {
             conditions.put("tags", Arrays.stream(tags).map(String::toLowerCase).collect(Collectors.toList()));
         }
 
-        IPage<UserVO> userPage = userService.searchUsers(conditions, current, size);
+        IPage<UserVO> userPage = userService.searchUsers(conditions, pageParams);
         return ResultUtils.success(userPage);
     }
 
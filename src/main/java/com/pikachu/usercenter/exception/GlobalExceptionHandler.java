@@ -5,6 +5,7 @@ import com.pikachu.usercenter.model.enums.ResponseCode;
 import com.pikachu.usercenter.utils.ResultUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.validation.BindException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -22,6 +23,7 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler({
             MethodArgumentNotValidException.class,
+            BindException.class,
             HttpMessageNotReadableException.class,
             MissingServletRequestParameterException.class
     })
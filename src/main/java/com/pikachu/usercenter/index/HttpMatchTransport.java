@@ -0,0 +1,84 @@
+package com.pikachu.usercenter.index;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 基于 HTTP 的分片匹配传输
+ * 调用节点的 /internal/match/shard 接口，节点地址为包含 context-path 的根地址，如 http://10.0.0.2:8080/api
+ * 请求头携带共享令牌，节点只接受令牌一致的请求
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class HttpMatchTransport implements MatchTransport {
+
+    public static final String TOKEN_HEADER = "X-Match-Token";
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String token;
+    private final Duration timeout;
+
+    public HttpMatchTransport(String token, Duration timeout) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+        this.token = token;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public CompletableFuture<TopKSelector> match(String node, int shard, int shardCount,
+                                                 long selfId, List<String> selfTags, int k) {
+        StringBuilder url = new StringBuilder(node).append("/internal/match/shard")
+                .append("?shard=").append(shard)
+                .append("&shardCount=").append(shardCount)
+                .append("&selfId=").append(selfId)
+                .append("&k=").append(k);
+        for (String tag : selfTags) {
+            url.append("&tags=").append(URLEncoder.encode(tag, StandardCharsets.UTF_8));
+        }
+        URI uri = URI.create(url.toString());
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header(TOKEN_HEADER, token)
+                .timeout(timeout)
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> parse(response, k));
+    }
+
+    private TopKSelector parse(HttpResponse<String> response, int k) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("match shard http status " + response.statusCode());
+        }
+        JsonNode data;
+        try {
+            data = objectMapper.readTree(response.body()).path("data");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("match shard response error", e);
+        }
+        JsonNode ids = data.path("ids");
+        JsonNode distances = data.path("distances");
+        if (!ids.isArray() || !distances.isArray() || ids.size() != distances.size()) {
+            throw new IllegalStateException("match shard response error: " + response.body());
+        }
+        TopKSelector topK = new TopKSelector(k);
+        for (int i = 0; i < ids.size(); i++) {
+            topK.offer(ids.get(i).asLong(), distances.get(i).asInt());
+        }
+        return topK;
+    }
+}
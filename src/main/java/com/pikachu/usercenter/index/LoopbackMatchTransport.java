@@ -0,0 +1,59 @@
+package com.pikachu.usercenter.index;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 进程内的分片匹配传输
+ * 节点地址直接映射到同一进程中的 {@link UserTagIndex}，用于在单机上测试完整的分片匹配流程
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class LoopbackMatchTransport implements MatchTransport {
+
+    private final Map<String, UserTagIndex> nodes = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    public LoopbackMatchTransport() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public LoopbackMatchTransport(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * 注册节点
+     *
+     * @param node         节点地址
+     * @param userTagIndex 节点的用户标签索引
+     */
+    public void register(String node, UserTagIndex userTagIndex) {
+        nodes.put(node, userTagIndex);
+    }
+
+    /**
+     * 注销节点，之后对该节点的请求都会失败
+     *
+     * @param node 节点地址
+     */
+    public void unregister(String node) {
+        nodes.remove(node);
+    }
+
+    @Override
+    public CompletableFuture<TopKSelector> match(String node, int shard, int shardCount,
+                                                 long selfId, List<String> selfTags, int k) {
+        UserTagIndex userTagIndex = nodes.get(node);
+        if (userTagIndex == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("unknown node " + node));
+        }
+        return CompletableFuture.supplyAsync(
+                () -> userTagIndex.match(selfId, userTagIndex.maskOf(selfTags), k, shard, shardCount), executor);
+    }
+}
@@ -0,0 +1,39 @@
+package com.pikachu.usercenter.index;
+
+/**
+ * 近似用户匹配器
+ * 只对 MinHash / LSH 索引中与当前用户碰撞的候选计算精确距离，候选不足 k 个时回退到全量精确匹配
+ * LSH 索引通过监听 {@link UserTagIndex} 的变更与其保持同步
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class LshUserMatcher implements UserMatcher {
+
+    private final UserTagIndex userTagIndex;
+    private final MinHashLshIndex lshIndex;
+
+    public LshUserMatcher(UserTagIndex userTagIndex, int bands, int rows) {
+        this.userTagIndex = userTagIndex;
+        this.lshIndex = new MinHashLshIndex(bands, rows, 0x5DEECE66DL);
+        userTagIndex.addListener(lshIndex::update);
+    }
+
+    @Override
+    public TopKSelector match(long selfId, long selfMask, int k) {
+        TopKSelector topK = new TopKSelector(k);
+        lshIndex.forEachCandidate(selfMask, id -> {
+            if (id == selfId) {
+                return;
+            }
+            long mask = userTagIndex.maskAt(id);
+            if (mask != 0L) {
+                topK.offer(id, Long.bitCount(mask ^ selfMask));
+            }
+        });
+        if (topK.size() < k) {
+            return userTagIndex.match(selfId, selfMask, k);
+        }
+        return topK;
+    }
+}
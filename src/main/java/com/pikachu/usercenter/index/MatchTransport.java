@@ -0,0 +1,29 @@
+package com.pikachu.usercenter.index;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 分片匹配的节点间传输
+ * 由 {@link ShardedUserMatcher} 调用，请求指定节点在其负责的分片内匹配并返回该分片的 Top-K
+ * 各节点的标签字典 id 分配可能不同，传递标签名，由接收的节点按自己的字典计算位图
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public interface MatchTransport {
+
+    /**
+     * 请求节点匹配一个分片
+     *
+     * @param node       节点地址
+     * @param shard      分片序号
+     * @param shardCount 分片总数
+     * @param selfId     当前用户 id，不参与匹配
+     * @param selfTags   当前用户标签名
+     * @param k          匹配个数
+     * @return 该分片内的 Top-K 结果
+     */
+    CompletableFuture<TopKSelector> match(String node, int shard, int shardCount, long selfId,
+                                          List<String> selfTags, int k);
+}
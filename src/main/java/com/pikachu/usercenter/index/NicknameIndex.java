@@ -0,0 +1,237 @@
+package com.pikachu.usercenter.index;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.pikachu.usercenter.mapper.UserMapper;
+import com.pikachu.usercenter.model.entity.User;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StopWatch;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 昵称 n-gram 倒排索引
+ * 昵称按字符（Unicode 码点）切分为单字和相邻两字，每个片段对应一个保存用户 id 的压缩位图
+ * 中文、英文昵称统一处理，英文不区分大小写
+ * <p>
+ * 子串查询：单字查询直接取单字位图；两个字及以上取所有相邻两字位图的交集
+ * 交集只是候选集合（两字片段都出现不代表连续出现），已删除的用户也不会从索引中移除，
+ * 因此候选需要由调用方在数据库中按 id 校验
+ * <p>
+ * 应用启动完成后从数据库全量构建，之后在用户注册、修改昵称时增量更新，并定时按 update_time 补齐其它节点的修改；
+ * 每个用户记录当前昵称的片段，修改昵称时移除不再出现的旧片段
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Slf4j
+@Component
+public class NicknameIndex {
+
+    /**
+     * 候选用户数超过该值时不再使用索引，由调用方直接在数据库中查询
+     */
+    public static final int VERIFY_LIMIT = 10000;
+
+    /**
+     * 增量同步时向前多取的时间，容忍各节点与数据库之间的时钟偏差
+     */
+    private static final long SYNC_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    @Resource
+    private UserMapper userMapper;
+
+    /**
+     * 片段 -> 用户 id 位图
+     */
+    private final Map<Long, RoaringBitmap> postings = new HashMap<>();
+
+    /**
+     * 用户 id -> 当前昵称的片段
+     */
+    private final Map<Integer, long[]> userGrams = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready = false;
+
+    private volatile long watermark;
+
+    /**
+     * 应用启动完成后构建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        long syncStart = System.currentTimeMillis();
+
+        LambdaQueryWrapper<User> qr = new LambdaQueryWrapper<>();
+        qr.select(User::getId, User::getNickname);
+        qr.isNotNull(User::getNickname);
+        qr.ne(User::getNickname, "");
+        qr.eq(User::getIsDelete, false);
+        // 流式读取，避免一次性加载全部用户
+        AtomicLong count = new AtomicLong();
+        userMapper.streamList(qr, context -> {
+            User user = context.getResultObject();
+            update(user.getId(), user.getNickname());
+            count.incrementAndGet();
+        });
+
+        watermark = syncStart;
+        ready = true;
+        stopWatch.stop();
+        log.info("nickname index built, {} users, {} grams, {} ms",
+                count.get(), postings.size(), stopWatch.getTotalTimeMillis());
+    }
+
+    /**
+     * 定时从数据库补齐其它节点修改过的昵称
+     */
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void catchUp() {
+        if (!ready) {
+            return;
+        }
+        long syncStart = System.currentTimeMillis();
+        LambdaQueryWrapper<User> qr = new LambdaQueryWrapper<>();
+        qr.select(User::getId, User::getNickname);
+        qr.gt(User::getUpdateTime, LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(watermark - SYNC_MARGIN_MILLIS), ZoneId.systemDefault()));
+        qr.eq(User::getIsDelete, false);
+        userMapper.streamList(qr, context -> {
+            User user = context.getResultObject();
+            update(user.getId(), user.getNickname());
+        });
+        watermark = syncStart;
+    }
+
+    /**
+     * 更新用户昵称，移除旧昵称中不再出现的片段
+     *
+     * @param userId   用户 id
+     * @param nickname 昵称，为空时从索引中移除
+     */
+    public void update(Long userId, String nickname) {
+        if (userId == null || userId < 0 || userId >= Integer.MAX_VALUE) {
+            return;
+        }
+        int id = userId.intValue();
+        long[] grams = StringUtils.isBlank(nickname) ? new long[0] : grams(normalize(nickname), true);
+        Arrays.sort(grams);
+        lock.writeLock().lock();
+        try {
+            long[] oldGrams = grams.length == 0 ? userGrams.remove(id) : userGrams.put(id, grams);
+            if (oldGrams != null) {
+                for (long gram : oldGrams) {
+                    if (Arrays.binarySearch(grams, gram) >= 0) {
+                        continue;
+                    }
+                    RoaringBitmap bitmap = postings.get(gram);
+                    if (bitmap != null) {
+                        bitmap.remove(id);
+                        if (bitmap.isEmpty()) {
+                            postings.remove(gram);
+                        }
+                    }
+                }
+            }
+            for (long gram : grams) {
+                postings.computeIfAbsent(gram, k -> new RoaringBitmap()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找昵称可能包含给定子串的用户
+     *
+     * @param keyword 子串
+     * @return 候选用户 id 位图；关键字无法使用索引（为空或包含 LIKE 通配符）时返回 null
+     */
+    public RoaringBitmap candidates(String keyword) {
+        if (StringUtils.isBlank(keyword) || keyword.indexOf('%') >= 0 || keyword.indexOf('_') >= 0) {
+            return null;
+        }
+        long[] grams = grams(normalize(keyword), false);
+        List<RoaringBitmap> bitmaps = new ArrayList<>(grams.length);
+        lock.readLock().lock();
+        try {
+            for (long gram : grams) {
+                RoaringBitmap bitmap = postings.get(gram);
+                if (bitmap == null) {
+                    return new RoaringBitmap();
+                }
+                bitmaps.add(bitmap);
+            }
+            // 从最小的位图开始求交集
+            bitmaps.sort(Comparator.comparingInt(RoaringBitmap::getCardinality));
+            RoaringBitmap result = bitmaps.get(0).clone();
+            for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+                result.and(bitmaps.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 切分片段
+     * 单字编码为码点本身，两字编码为 (第一个码点 + 1) << 21 | 第二个码点，码点不超过 21 位，两者不会冲突
+     *
+     * @param text     文本
+     * @param indexing 为 true 时生成全部单字和两字片段（建索引）；否则两个字及以上只生成两字片段（查询）
+     * @return 去重后的片段
+     */
+    static long[] grams(String text, boolean indexing) {
+        int[] codePoints = text.codePoints().toArray();
+        int n = codePoints.length;
+        if (n == 0) {
+            return new long[0];
+        }
+        if (!indexing && n == 1) {
+            return new long[]{codePoints[0]};
+        }
+        long[] grams = new long[(indexing ? n : 0) + n - 1];
+        int size = 0;
+        if (indexing) {
+            for (int codePoint : codePoints) {
+                grams[size++] = codePoint;
+            }
+        }
+        for (int i = 0; i + 1 < n; i++) {
+            grams[size++] = ((long) codePoints[i] + 1) << 21 | codePoints[i + 1];
+        }
+        return Arrays.stream(grams, 0, size).distinct().toArray();
+    }
+}
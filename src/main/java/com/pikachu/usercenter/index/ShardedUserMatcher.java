@@ -0,0 +1,99 @@
+package com.pikachu.usercenter.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 分片用户匹配器
+ * 用户按 {@link UserTagIndex#shardOf(long, int)} 分给各节点，第 i 个节点负责第 i 个分片
+ * 接收请求的节点把查询分发给所有节点，各节点只扫描自己负责的用户并返回 Top-K，最后合并为全局 Top-K
+ * 查询以标签名发给其它节点，不依赖各节点标签字典的 id 分配一致
+ * <p>
+ * 每个节点的索引仍保存全部用户的位图（按标签搜索需要），节点请求失败或超时时由本节点在完整位图上补算该分片，
+ * 结果与精确匹配一致
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Slf4j
+public class ShardedUserMatcher implements UserMatcher {
+
+    private final UserTagIndex userTagIndex;
+    private final MatchTransport transport;
+    private final List<String> nodes;
+    private final int self;
+    private final long timeoutMillis;
+
+    /**
+     * @param userTagIndex  本节点的用户标签索引
+     * @param transport     节点间传输
+     * @param nodes         全部节点地址，顺序即分片序号，各节点的配置必须一致
+     * @param self          本节点在 nodes 中的序号
+     * @param timeoutMillis 等待其它节点的超时时间（毫秒）
+     */
+    public ShardedUserMatcher(UserTagIndex userTagIndex, MatchTransport transport,
+                              List<String> nodes, int self, long timeoutMillis) {
+        if (nodes == null || nodes.isEmpty() || self < 0 || self >= nodes.size()) {
+            throw new IllegalArgumentException("invalid shard nodes");
+        }
+        this.userTagIndex = userTagIndex;
+        this.transport = transport;
+        this.nodes = List.copyOf(nodes);
+        this.self = self;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public TopKSelector match(long selfId, long selfMask, int k) {
+        int shardCount = nodes.size();
+        if (shardCount == 1) {
+            return userTagIndex.match(selfId, selfMask, k);
+        }
+
+        // 1. 分发到其它节点
+        List<String> selfTags = userTagIndex.tagsOf(selfMask);
+        @SuppressWarnings("unchecked")
+        CompletableFuture<TopKSelector>[] futures = new CompletableFuture[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (shard == self) {
+                continue;
+            }
+            try {
+                futures[shard] = transport.match(nodes.get(shard), shard, shardCount, selfId, selfTags, k);
+            } catch (RuntimeException e) {
+                futures[shard] = CompletableFuture.failedFuture(e);
+            }
+        }
+
+        // 2. 本节点计算自己的分片
+        TopKSelector topK = userTagIndex.match(selfId, selfMask, k, self, shardCount);
+
+        // 3. 收集并合并，失败的分片由本节点补算
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (shard == self) {
+                continue;
+            }
+            topK.merge(gather(futures[shard], deadline, shard, shardCount, selfId, selfMask, k));
+        }
+        return topK;
+    }
+
+    private TopKSelector gather(CompletableFuture<TopKSelector> future, long deadline,
+                                int shard, int shardCount, long selfId, long selfMask, int k) {
+        try {
+            return future.get(Math.max(deadline - System.nanoTime(), 0L), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("match shard {} on {} failed, computing locally", shard, nodes.get(shard), e);
+        }
+        future.cancel(true);
+        return userTagIndex.match(selfId, selfMask, k, shard, shardCount);
+    }
+}
@@ -0,0 +1,208 @@
+package com.pikachu.usercenter.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 标签字典
+ * 将标签名映射为从 0 开始的整数 id，id 小于 64 的标签可以放入一个 long 位图中
+ * <p>
+ * 只从受控的来源分配 id：预置的 tags.txt 及标签表（由 {@link UserTagIndex} 构建时登记），最多 {@link #MASK_BITS} 个；
+ * 用户填写的标签、搜索关键字等查询路径只查找不分配，字典不会随用户输入增长，
+ * 字典外的标签不参与位图，由调用方决定是否记录或回退
+ * 标签名不区分大小写（与 MySQL utf8mb4_unicode_ci 的比较规则保持一致）
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class TagDictionary {
+
+    /**
+     * 位图可容纳的标签数
+     */
+    public static final int MASK_BITS = Long.SIZE;
+
+    private final Map<String, Integer> tagIdMap = new ConcurrentHashMap<>();
+    private final List<String> tagNames = new ArrayList<>();
+
+    public TagDictionary() {
+        this(loadTagsFile());
+    }
+
+    public TagDictionary(List<String> tags) {
+        register(tags);
+    }
+
+    /**
+     * 登记受控来源的标签，按顺序为字典中没有的标签分配 id，达到 {@link #MASK_BITS} 个后不再分配
+     *
+     * @param tags 标签列表
+     * @return 新分配 id 的标签数
+     */
+    public int register(Collection<String> tags) {
+        int added = 0;
+        synchronized (tagNames) {
+            for (String tag : tags) {
+                if (StringUtils.isBlank(tag) || tagIdMap.containsKey(normalize(tag))) {
+                    continue;
+                }
+                if (tagNames.size() >= MASK_BITS) {
+                    log.warn("tag dictionary is full ({} tags), tag '{}' is left out of tag masks", MASK_BITS, tag);
+                    continue;
+                }
+                String key = normalize(tag);
+                tagNames.add(key);
+                tagIdMap.put(key, tagNames.size() - 1);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 查找标签 id，不分配新 id
+     *
+     * @param tag 标签名
+     * @return 标签 id，字典中不存在时返回 -1
+     */
+    public int find(String tag) {
+        if (StringUtils.isBlank(tag)) {
+            return -1;
+        }
+        return tagIdMap.getOrDefault(normalize(tag), -1);
+    }
+
+    /**
+     * 计算标签列表的位图
+     * 字典外的标签会被忽略，不分配 id
+     *
+     * @param tags 标签列表
+     * @return 标签位图
+     */
+    public long maskOf(List<String> tags) {
+        if (tags == null) {
+            return 0L;
+        }
+        long mask = 0L;
+        for (String tag : tags) {
+            int id = find(tag);
+            if (id >= 0) {
+                mask |= 1L << id;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * 位图中各标签的名称
+     *
+     * @param mask 标签位图
+     * @return 按 id 排列的标签名
+     */
+    public List<String> tagsOf(long mask) {
+        List<String> tags = new ArrayList<>(Long.bitCount(mask));
+        synchronized (tagNames) {
+            long remaining = mask;
+            while (remaining != 0L) {
+                int id = Long.numberOfTrailingZeros(remaining);
+                if (id < tagNames.size()) {
+                    tags.add(tagNames.get(id));
+                }
+                remaining &= remaining - 1;
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * 将标签列表转换为标签 id 数组，保持原有顺序
+     *
+     * @param tags 标签列表
+     * @return 标签 id 数组，字典外的标签为 -1
+     */
+    public int[] idsOf(List<String> tags) {
+        if (tags == null) {
+            return new int[0];
+        }
+        int[] ids = new int[tags.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = find(tags.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * 标签是否可以被位图表示
+     */
+    public boolean inMask(String tag) {
+        return find(tag) >= 0;
+    }
+
+    /**
+     * 标签列表中是否有不能被位图表示的标签
+     *
+     * @param tags 标签列表
+     * @return 字典外的非空标签
+     */
+    public List<String> unmapped(List<String> tags) {
+        if (tags == null) {
+            return List.of();
+        }
+        List<String> unmapped = new ArrayList<>(0);
+        for (String tag : tags) {
+            if (!StringUtils.isBlank(tag) && find(tag) < 0) {
+                unmapped.add(tag);
+            }
+        }
+        return unmapped;
+    }
+
+    /**
+     * @return 按 id 排列的标签名
+     */
+    public List<String> tags() {
+        synchronized (tagNames) {
+            return new ArrayList<>(tagNames);
+        }
+    }
+
+    public int size() {
+        return tagIdMap.size();
+    }
+
+    private static String normalize(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> loadTagsFile() {
+        List<String> tags = new ArrayList<>();
+        ClassPathResource resource = new ClassPathResource("tags.txt");
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String tag;
+            while ((tag = reader.readLine()) != null) {
+                if (!StringUtils.isBlank(tag)) {
+                    tags.add(tag);
+                }
+            }
+        } catch (IOException e) {
+            log.error("load tags.txt error", e);
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,149 @@
+package com.pikachu.usercenter.index;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 标签倒排索引
+ * 每个标签对应一个压缩位图（RoaringBitmap），保存拥有该标签的全部用户 id
+ * 多标签搜索即多个位图求交集，分页直接在结果位图上定位，代价只与结果规模有关
+ * <p>
+ * 通过监听 {@link UserTagIndex} 的位图变更与其保持同步，标签按字典精确匹配（不区分大小写）
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Component
+public class TagInvertedIndex implements UserTagIndex.MaskListener {
+
+    private final UserTagIndex userTagIndex;
+    private final TagDictionary tagDictionary;
+
+    /**
+     * 标签 id -> 用户 id 位图
+     */
+    private final RoaringBitmap[] postings = new RoaringBitmap[TagDictionary.MASK_BITS];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TagInvertedIndex(UserTagIndex userTagIndex, TagDictionary tagDictionary) {
+        this.userTagIndex = userTagIndex;
+        this.tagDictionary = tagDictionary;
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = new RoaringBitmap();
+        }
+        userTagIndex.addListener(this);
+    }
+
+    @Override
+    public void onChange(int userId, long oldMask, long newMask) {
+        long changed = oldMask ^ newMask;
+        if (changed == 0L) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            while (changed != 0L) {
+                int tagId = Long.numberOfTrailingZeros(changed);
+                if ((newMask & (1L << tagId)) != 0L) {
+                    postings[tagId].add(userId);
+                } else {
+                    postings[tagId].remove(userId);
+                }
+                changed &= changed - 1;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查找同时拥有全部标签的用户
+     *
+     * @param tags 标签列表
+     * @return 用户 id 位图；有标签不在位图范围内时返回 null，调用方需回退到数据库查询
+     */
+    public RoaringBitmap search(List<String> tags) {
+        List<RoaringBitmap> bitmaps = new ArrayList<>(tags.size());
+        lock.readLock().lock();
+        try {
+            for (String tag : tags) {
+                int tagId = tagDictionary.find(tag);
+                if (tagId < 0) {
+                    // 字典中没有的标签，不会有任何用户拥有
+                    return new RoaringBitmap();
+                }
+                if (tagId >= TagDictionary.MASK_BITS) {
+                    return null;
+                }
+                bitmaps.add(postings[tagId]);
+            }
+            if (bitmaps.isEmpty()) {
+                return null;
+            }
+            // 从最小的位图开始求交集
+            bitmaps.sort((a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+            RoaringBitmap result = bitmaps.get(0).clone();
+            for (int i = 1; i < bitmaps.size() && !result.isEmpty(); i++) {
+                result.and(bitmaps.get(i));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从结果位图中取出一页用户 id
+     *
+     * @param bitmap 结果位图
+     * @param offset 跳过的记录数
+     * @param limit  每页记录数
+     * @return 按 id 升序的用户 id 列表
+     */
+    public static List<Long> page(RoaringBitmap bitmap, long offset, long limit) {
+        List<Long> ids = new ArrayList<>();
+        if (offset >= bitmap.getCardinality()) {
+            return ids;
+        }
+        PeekableIntIterator iterator = bitmap.getIntIterator();
+        if (offset > 0) {
+            iterator.advanceIfNeeded(bitmap.select((int) offset));
+        }
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add((long) iterator.next());
+        }
+        return ids;
+    }
+
+    /**
+     * 按游标分页：取结果位图中大于 lastId 的前 limit 个用户 id
+     *
+     * @param bitmap 结果位图
+     * @param lastId 上一页最后一个用户 id
+     * @param limit  每页记录数
+     * @return 按 id 升序的用户 id 列表
+     */
+    public static List<Long> after(RoaringBitmap bitmap, long lastId, long limit) {
+        List<Long> ids = new ArrayList<>();
+        if (lastId >= Integer.MAX_VALUE) {
+            return ids;
+        }
+        PeekableIntIterator iterator = bitmap.getIntIterator();
+        iterator.advanceIfNeeded((int) lastId + 1);
+        while (iterator.hasNext() && ids.size() < limit) {
+            ids.add((long) iterator.next());
+        }
+        return ids;
+    }
+
+    public boolean isReady() {
+        return userTagIndex.isReady();
+    }
+}
@@ -0,0 +1,150 @@
+package com.pikachu.usercenter.index;
+
+import java.util.Arrays;
+
+/**
+ * 有界 Top-K 选择器
+ * 保留距离最小的 K 个用户，内部为以距离为键的二叉堆，堆顶为当前第 K 好（距离最大）的候选
+ * 使用原始类型数组存储，每次插入 O(log K)，不产生装箱对象
+ * <p>
+ * 距离相同时 id 较小的用户优先，与按 id 顺序扫描再稳定排序的结果一致
+ * 非线程安全，并行计算时每个分区各持有一个实例，最后通过 {@link #merge(TopKSelector)} 合并
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class TopKSelector {
+
+    private final int k;
+    private final long[] ids;
+    private final int[] distances;
+    private int size;
+
+    public TopKSelector(int k) {
+        this.k = Math.max(k, 0);
+        this.ids = new long[this.k];
+        this.distances = new int[this.k];
+    }
+
+    /**
+     * 尝试加入一个候选用户
+     *
+     * @param id       用户 id
+     * @param distance 距离
+     * @return 是否被保留
+     */
+    public boolean offer(long id, int distance) {
+        if (size < k) {
+            ids[size] = id;
+            distances[size] = distance;
+            siftUp(size++);
+            return true;
+        }
+        if (k == 0 || !better(id, distance, ids[0], distances[0])) {
+            return false;
+        }
+        ids[0] = id;
+        distances[0] = distance;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * 合并另一个选择器中的候选
+     *
+     * @param other 另一个选择器
+     * @return 当前选择器
+     */
+    public TopKSelector merge(TopKSelector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.distances[i]);
+        }
+        return this;
+    }
+
+    /**
+     * 当前第 K 好候选的距离
+     * 未满 K 个时返回 {@link Integer#MAX_VALUE}，距离大于该值的候选不可能入选
+     */
+    public int threshold() {
+        return size < k ? Integer.MAX_VALUE : distances[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 按距离升序（距离相同按 id 升序）排列的用户 id
+     */
+    public long[] sortedIds() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> distances[a] != distances[b]
+                ? Integer.compare(distances[a], distances[b])
+                : Long.compare(ids[a], ids[b]));
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = ids[order[i]];
+        }
+        return result;
+    }
+
+    /**
+     * @return 与 {@link #sortedIds()} 一一对应的距离
+     */
+    public int[] sortedDistances() {
+        int[] result = Arrays.copyOf(distances, size);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * a 是否优于 b
+     */
+    private static boolean better(long idA, int distA, long idB, int distB) {
+        return distA < distB || (distA == distB && idA < idB);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            // 堆顶保存最差的候选
+            if (!better(ids[parent], distances[parent], ids[i], distances[i])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < size && better(ids[left], distances[left], ids[right], distances[right])) {
+                worst = right;
+            }
+            if (!better(ids[i], distances[i], ids[worst], distances[worst])) {
+                break;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        int distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+    }
+}
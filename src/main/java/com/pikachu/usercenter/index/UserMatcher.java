@@ -0,0 +1,22 @@
+package com.pikachu.usercenter.index;
+
+/**
+ * 用户匹配器
+ * 根据标签位图找出与当前用户最相似的 k 个用户，具体实现由 match-config.mode 配置选择
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface UserMatcher {
+
+    /**
+     * 匹配用户
+     *
+     * @param selfId   当前用户 id，不参与匹配
+     * @param selfMask 当前用户标签位图
+     * @param k        匹配个数
+     * @return Top-K 结果
+     */
+    TopKSelector match(long selfId, long selfMask, int k);
+}
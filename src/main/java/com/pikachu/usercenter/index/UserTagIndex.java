@@ -0,0 +1,529 @@
+package com.pikachu.usercenter.index;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.pikachu.usercenter.config.MatchConfig;
+import com.pikachu.usercenter.mapper.TagMapper;
+import com.pikachu.usercenter.mapper.UserMapper;
+import com.pikachu.usercenter.model.entity.Tag;
+import com.pikachu.usercenter.model.entity.User;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StopWatch;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户标签匹配索引
+ * 常驻内存，以用户 id 为下标保存每个用户的标签位图，位图为 0 表示该用户无标签
+ * <p>
+ * 应用启动完成后构建一次，之后在用户修改标签时增量更新，并定时按 update_time 从数据库补齐其它节点的修改
+ * 定时将索引保存为快照文件，下次启动时从快照恢复，只需从数据库补齐快照之后的修改
+ * 索引构建完成前 {@link #isReady()} 返回 false，调用方需要回退到数据库查询
+ * 构建前先将标签表中的标签登记到标签字典；用户的标签不在字典中时不参与匹配，按用户记录警告日志
+ * <p>
+ * 分片匹配时本节点负责的分片另外保存为一个紧凑数组（下标为 id / 分片总数），匹配本分片只扫描该数组，
+ * 扫描量为全部用户的 1 / 分片总数；完整的位图仍然保留，供按标签搜索用户及其它节点失败时补算
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class UserTagIndex {
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    /**
+     * 并行匹配时每个分区的最大用户 id 跨度
+     */
+    private static final int SPLIT_THRESHOLD = 1 << 15;
+
+    /**
+     * 增量同步时向前多取的时间，容忍各节点与数据库之间的时钟偏差
+     */
+    private static final long SYNC_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    @Resource
+    private UserMapper userMapper;
+    @Resource
+    private TagMapper tagMapper;
+    @Resource
+    private MatchConfig matchConfig;
+
+    private final TagDictionary tagDictionary;
+
+    /**
+     * 用户 id -> 标签位图
+     */
+    private volatile long[] masks = new long[INITIAL_CAPACITY];
+
+    /**
+     * 本节点负责的分片序号及分片总数，分片总数为 1 时不分片
+     */
+    private volatile int ownShard = 0;
+    private volatile int ownShardCount = 1;
+
+    /**
+     * 本节点负责的分片：(id / 分片总数) -> 标签位图
+     */
+    private volatile long[] shardMasks = new long[0];
+
+    private volatile boolean ready = false;
+
+    /**
+     * 水位线：索引已包含该时间之前数据库中的全部修改（毫秒时间戳）
+     */
+    private volatile long watermark;
+
+    /**
+     * 位图变更监听器
+     */
+    private final List<MaskListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 构建期间被增量更新过的用户 id，构建时跳过这些用户，避免旧数据覆盖新数据
+     */
+    private volatile Set<Long> updatedWhileBuilding;
+
+    public UserTagIndex(TagDictionary tagDictionary) {
+        this.tagDictionary = tagDictionary;
+    }
+
+    /**
+     * 应用启动完成后构建索引
+     * 有可用的快照时先内存映射加载快照，再从数据库补齐水位线之后更新过的用户；否则从数据库全量构建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        StopWatch stopWatch = new StopWatch();
+        stopWatch.start();
+        updatedWhileBuilding = ConcurrentHashMap.newKeySet();
+        long syncStart = System.currentTimeMillis();
+
+        registerTagTable();
+        long count;
+        UserTagSnapshot snapshot = loadSnapshot();
+        if (snapshot != null) {
+            snapshot.forEach(this::apply);
+            count = snapshot.getRecordCount() + syncSince(snapshot.getWatermark());
+        } else {
+            count = fullLoad();
+        }
+
+        watermark = syncStart;
+        updatedWhileBuilding = null;
+        ready = true;
+        stopWatch.stop();
+        log.info("user tag index built from {}, {} users, {} ms",
+                snapshot != null ? "snapshot" : "database", count, stopWatch.getTotalTimeMillis());
+    }
+
+    /**
+     * 定时从数据库补齐其它节点修改过的用户标签
+     */
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void catchUp() {
+        if (!ready) {
+            return;
+        }
+        long syncStart = System.currentTimeMillis();
+        syncSince(watermark);
+        watermark = syncStart;
+    }
+
+    /**
+     * 定时及应用关闭时保存索引快照
+     */
+    @Scheduled(cron = "0 0 * * * *")
+    @PreDestroy
+    public void saveSnapshot() {
+        if (!ready || matchConfig == null || StringUtils.isBlank(matchConfig.getSnapshotPath())) {
+            return;
+        }
+        try {
+            long count = UserTagSnapshot.write(Path.of(matchConfig.getSnapshotPath()), watermark,
+                    tagDictionary.tags(), masks);
+            log.info("user tag index snapshot saved, {} users", count);
+        } catch (IOException e) {
+            log.error("save user tag index snapshot error", e);
+        }
+    }
+
+    /**
+     * 从数据库全量加载有标签的用户
+     *
+     * @return 加载的用户数
+     */
+    private long fullLoad() {
+        LambdaQueryWrapper<User> qr = new LambdaQueryWrapper<>();
+        qr.select(User::getId, User::getTags);
+        qr.isNotNull(User::getTags);
+        qr.ne(User::getTags, "");
+        qr.eq(User::getIsDelete, false);
+        // 流式读取，避免一次性加载全部用户
+        AtomicLong count = new AtomicLong();
+        userMapper.streamList(qr, context -> {
+            User user = context.getResultObject();
+            apply(user.getId(), maskOf(user.getId(), user.getTags()));
+            count.incrementAndGet();
+        });
+        return count.get();
+    }
+
+    /**
+     * 从数据库加载水位线之后更新过的用户（包括已删除的用户）
+     *
+     * @param since 水位线（毫秒时间戳）
+     * @return 加载的用户数
+     */
+    private long syncSince(long since) {
+        LocalDateTime updateTime = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(since - SYNC_MARGIN_MILLIS), ZoneId.systemDefault());
+        LambdaQueryWrapper<User> qr = new LambdaQueryWrapper<>();
+        qr.select(User::getId, User::getTags, User::getIsDelete);
+        qr.gt(User::getUpdateTime, updateTime);
+        AtomicLong count = new AtomicLong();
+        userMapper.streamList(qr, context -> {
+            User user = context.getResultObject();
+            long mask = Boolean.TRUE.equals(user.getIsDelete()) ? 0L : maskOf(user.getId(), user.getTags());
+            apply(user.getId(), mask);
+            count.incrementAndGet();
+        });
+        return count.get();
+    }
+
+    /**
+     * 读取快照，快照的标签字典必须与当前字典的 id 分配一致
+     *
+     * @return 快照，不存在或不可用时返回 null
+     */
+    private UserTagSnapshot loadSnapshot() {
+        if (matchConfig == null || StringUtils.isBlank(matchConfig.getSnapshotPath())) {
+            return null;
+        }
+        try {
+            UserTagSnapshot snapshot = UserTagSnapshot.read(Path.of(matchConfig.getSnapshotPath()));
+            if (snapshot == null) {
+                return null;
+            }
+            List<String> tags = snapshot.getTags();
+            for (int i = 0; i < tags.size(); i++) {
+                if (tagDictionary.find(tags.get(i)) != i) {
+                    log.warn("user tag index snapshot discarded, tag dictionary changed");
+                    return null;
+                }
+            }
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            log.error("read user tag index snapshot error", e);
+            return null;
+        }
+    }
+
+    /**
+     * 构建期间写入索引，跳过已被增量更新过的用户
+     */
+    private void apply(long userId, long mask) {
+        Set<Long> updated = updatedWhileBuilding;
+        if (updated != null && updated.contains(userId)) {
+            return;
+        }
+        put(userId, mask);
+    }
+
+    /**
+     * 更新用户标签
+     *
+     * @param userId 用户 id
+     * @param tags   新的标签列表
+     */
+    public void update(Long userId, List<String> tags) {
+        Set<Long> updated = updatedWhileBuilding;
+        if (updated != null) {
+            updated.add(userId);
+        }
+        put(userId, maskOf(userId, tags));
+    }
+
+    /**
+     * 按 id 顺序登记标签表中的标签，字典已满时多出的标签不参与匹配
+     */
+    private void registerTagTable() {
+        try {
+            LambdaQueryWrapper<Tag> qr = new LambdaQueryWrapper<>();
+            qr.select(Tag::getTagName);
+            qr.orderByAsc(Tag::getId);
+            List<String> tags = tagMapper.selectList(qr).stream().map(Tag::getTagName).toList();
+            int added = tagDictionary.register(tags);
+            log.info("tag dictionary loaded, {} tags from tag table, {} tags in total", added, tagDictionary.size());
+        } catch (Exception e) {
+            log.error("load tag table error", e);
+        }
+    }
+
+    /**
+     * 计算用户的标签位图，字典外的标签不参与匹配，记录到日志
+     */
+    private long maskOf(long userId, List<String> tags) {
+        List<String> unmapped = tagDictionary.unmapped(tags);
+        if (!unmapped.isEmpty()) {
+            log.warn("user {} has tags outside the tag dictionary, left out of matching: {}", userId, unmapped);
+        }
+        return tagDictionary.maskOf(tags);
+    }
+
+    /**
+     * 从索引中移除用户
+     *
+     * @param userId 用户 id
+     */
+    public void remove(Long userId) {
+        update(userId, null);
+    }
+
+    /**
+     * 找出与给定标签位图距离（两位图不同的位数）最小的 k 个用户
+     * 按用户 id 区间切分后在 ForkJoin 公共池中并行计算，各分区的 Top-K 结果最后合并
+     *
+     * @param selfId   当前用户 id，不参与匹配
+     * @param selfMask 当前用户标签位图
+     * @param k        匹配个数
+     * @return Top-K 结果
+     */
+    public TopKSelector match(long selfId, long selfMask, int k) {
+        return match(selfId, selfMask, k, 0, 1);
+    }
+
+    /**
+     * 设置本节点负责的分片，之后匹配该分片时只扫描该分片的用户
+     *
+     * @param shard      分片序号
+     * @param shardCount 分片总数
+     */
+    public synchronized void own(int shard, int shardCount) {
+        if (shardCount <= 0 || shard < 0 || shard >= shardCount) {
+            throw new IllegalArgumentException("invalid shard " + shard + " of " + shardCount);
+        }
+        long[] current = masks;
+        long[] owned = new long[0];
+        if (shardCount > 1) {
+            owned = new long[slotCount(current.length, shard, shardCount)];
+            for (int slot = 0; slot < owned.length; slot++) {
+                owned[slot] = current[shard + slot * shardCount];
+            }
+        }
+        shardMasks = owned;
+        ownShard = shard;
+        ownShardCount = shardCount;
+    }
+
+    /**
+     * 只在指定分片拥有的用户中匹配，用于分片匹配时各节点计算自己负责的部分
+     * 本节点负责的分片只扫描紧凑数组；其它分片（补算失败的节点）在完整位图上按步长扫描
+     *
+     * @param selfId     当前用户 id，不参与匹配
+     * @param selfMask   当前用户标签位图
+     * @param k          匹配个数
+     * @param shard      分片序号
+     * @param shardCount 分片总数，为 1 时不分片
+     * @return 该分片内的 Top-K 结果
+     */
+    public TopKSelector match(long selfId, long selfMask, int k, int shard, int shardCount) {
+        MatchTask task;
+        if (shardCount <= 1) {
+            long[] snapshot = masks;
+            task = new MatchTask(snapshot, 0, snapshot.length, 0, 1, true, selfId, selfMask, k);
+        } else if (shard == ownShard && shardCount == ownShardCount) {
+            long[] snapshot = shardMasks;
+            task = new MatchTask(snapshot, 0, snapshot.length, shard, shardCount, true, selfId, selfMask, k);
+        } else {
+            long[] snapshot = masks;
+            task = new MatchTask(snapshot, 0, slotCount(snapshot.length, shard, shardCount),
+                    shard, shardCount, false, selfId, selfMask, k);
+        }
+        return ForkJoinPool.commonPool().invoke(task);
+    }
+
+    /**
+     * 在 [from, to) 的下标区间内顺序计算 Top-K，第 slot 个下标对应的用户 id 为 base + slot * stride
+     *
+     * @param packed 为 true 时位图按下标保存（紧凑数组），否则按用户 id 保存（完整位图）
+     */
+    static void scan(long[] masks, int from, int to, int base, int stride, boolean packed,
+                     long selfId, long selfMask, TopKSelector topK) {
+        for (int slot = from; slot < to; slot++) {
+            int id = base + slot * stride;
+            long mask = masks[packed ? slot : id];
+            if (mask == 0L || id == selfId) {
+                continue;
+            }
+            topK.offer(id, distance(mask, selfMask));
+        }
+    }
+
+    /**
+     * 两个用户的距离：标签位图的汉明距离，即只有其中一方拥有的标签数
+     * 索引未就绪时的数据库回退使用同一个距离，两种方式的匹配结果一致
+     *
+     * @param mask     用户标签位图
+     * @param selfMask 当前用户标签位图
+     * @return 距离
+     */
+    public static int distance(long mask, long selfMask) {
+        return Long.bitCount(mask ^ selfMask);
+    }
+
+    /**
+     * 完整位图中属于指定分片的下标个数
+     */
+    private static int slotCount(int length, int shard, int shardCount) {
+        return length <= shard ? 0 : (length - shard + shardCount - 1) / shardCount;
+    }
+
+    /**
+     * 用户所属的分片，按 id 取模，连续注册的用户轮流分到各分片，各节点可以按 id / 分片总数紧凑保存
+     *
+     * @param userId     用户 id
+     * @param shardCount 分片总数
+     * @return 分片序号
+     */
+    public static int shardOf(long userId, int shardCount) {
+        return (int) Long.remainderUnsigned(userId, shardCount);
+    }
+
+    /**
+     * @param userId 用户 id
+     * @return 用户的标签位图，不在索引中时返回 0
+     */
+    public long maskAt(long userId) {
+        long[] snapshot = masks;
+        return userId >= 0 && userId < snapshot.length ? snapshot[(int) userId] : 0L;
+    }
+
+    /**
+     * 注册位图变更监听器，构建索引时的每次写入也会通知
+     *
+     * @param listener 监听器
+     */
+    public void addListener(MaskListener listener) {
+        listeners.add(listener);
+    }
+
+    public long maskOf(List<String> tags) {
+        return tagDictionary.maskOf(tags);
+    }
+
+    /**
+     * 位图对应的标签名，各节点的标签字典 id 分配可能不同，节点间传递标签名而不是位图
+     *
+     * @param mask 标签位图
+     * @return 标签名列表
+     */
+    public List<String> tagsOf(long mask) {
+        return tagDictionary.tagsOf(mask);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private synchronized void put(Long userId, long mask) {
+        if (userId == null || userId < 0 || userId >= Integer.MAX_VALUE) {
+            return;
+        }
+        int id = userId.intValue();
+        long[] current = masks;
+        if (id >= current.length) {
+            if (mask == 0L) {
+                return;
+            }
+            current = Arrays.copyOf(current, Math.max(id + 1, current.length + (current.length >> 1)));
+        }
+        long oldMask = current[id];
+        current[id] = mask;
+        masks = current;
+        int shardCount = ownShardCount;
+        if (shardCount > 1 && id % shardCount == ownShard) {
+            int slot = id / shardCount;
+            long[] owned = shardMasks;
+            if (slot >= owned.length) {
+                owned = Arrays.copyOf(owned, Math.max(slot + 1, owned.length + (owned.length >> 1)));
+            }
+            owned[slot] = mask;
+            shardMasks = owned;
+        }
+        for (MaskListener listener : listeners) {
+            listener.onChange(id, oldMask, mask);
+        }
+    }
+
+    /**
+     * 位图变更监听器
+     */
+    @FunctionalInterface
+    public interface MaskListener {
+        void onChange(int userId, long oldMask, long newMask);
+    }
+
+    /**
+     * 按下标区间二分的并行匹配任务
+     */
+    private static class MatchTask extends RecursiveTask<TopKSelector> {
+        private final long[] masks;
+        private final int from;
+        private final int to;
+        private final int base;
+        private final int stride;
+        private final boolean packed;
+        private final long selfId;
+        private final long selfMask;
+        private final int k;
+
+        MatchTask(long[] masks, int from, int to, int base, int stride, boolean packed,
+                  long selfId, long selfMask, int k) {
+            this.masks = masks;
+            this.from = from;
+            this.to = to;
+            this.base = base;
+            this.stride = stride;
+            this.packed = packed;
+            this.selfId = selfId;
+            this.selfMask = selfMask;
+            this.k = k;
+        }
+
+        @Override
+        protected TopKSelector compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                TopKSelector topK = new TopKSelector(k);
+                scan(masks, from, to, base, stride, packed, selfId, selfMask, topK);
+                return topK;
+            }
+            int mid = (from + to) >>> 1;
+            MatchTask left = new MatchTask(masks, from, mid, base, stride, packed, selfId, selfMask, k);
+            MatchTask right = new MatchTask(masks, mid, to, base, stride, packed, selfId, selfMask, k);
+            left.fork();
+            TopKSelector rightResult = right.compute();
+            return left.join().merge(rightResult);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.pikachu.usercenter.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户标签索引快照文件
+ * <p>
+ * 文件格式（大端序）：
+ * <pre>
+ * int    魔数 UTIX
+ * int    版本号
+ * long   水位线（毫秒时间戳），update_time 晚于该时间的用户需要从数据库补齐
+ * int    标签数，随后每个标签为 short 长度 + UTF-8 字节，顺序即标签 id
+ * long   记录数，随后每条记录为定长 16 字节：long 用户 id + long 标签位图
+ * </pre>
+ * 读取时整个文件以只读方式内存映射，避免逐条读取的系统调用开销
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class UserTagSnapshot {
+
+    private static final int MAGIC = 0x55544958;
+    private static final int VERSION = 1;
+
+    private final long watermark;
+    private final List<String> tags;
+    private final long recordCount;
+    private final ByteBuffer records;
+
+    private UserTagSnapshot(long watermark, List<String> tags, long recordCount, ByteBuffer records) {
+        this.watermark = watermark;
+        this.tags = tags;
+        this.recordCount = recordCount;
+        this.records = records;
+    }
+
+    /**
+     * 写入快照，先写临时文件再原子替换，不会留下写了一半的快照
+     *
+     * @param path      快照文件路径
+     * @param watermark 水位线
+     * @param tags      按 id 排列的标签字典
+     * @param masks     用户 id -> 标签位图，位图为 0 的用户不写入
+     * @return 写入的记录数
+     */
+    public static long write(Path path, long watermark, List<String> tags, long[] masks) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long recordCount = 0;
+        for (long mask : masks) {
+            if (mask != 0L) {
+                recordCount++;
+            }
+        }
+        Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpPath), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(watermark);
+            out.writeInt(tags.size());
+            for (String tag : tags) {
+                byte[] bytes = tag.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+            out.writeLong(recordCount);
+            for (int id = 0; id < masks.length; id++) {
+                if (masks[id] != 0L) {
+                    out.writeLong(id);
+                    out.writeLong(masks[id]);
+                }
+            }
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return recordCount;
+    }
+
+    /**
+     * 内存映射读取快照
+     *
+     * @param path 快照文件路径
+     * @return 快照，文件不存在或格式不兼容时返回 null
+     */
+    public static UserTagSnapshot read(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        long watermark = buffer.getLong();
+        int tagCount = buffer.getInt();
+        List<String> tags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            tags.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        long recordCount = buffer.getLong();
+        if (buffer.remaining() != recordCount * 16) {
+            return null;
+        }
+        return new UserTagSnapshot(watermark, tags, recordCount, buffer.slice());
+    }
+
+    /**
+     * 遍历快照中的记录
+     *
+     * @param consumer 记录处理逻辑
+     */
+    public void forEach(RecordConsumer consumer) {
+        ByteBuffer buffer = records.duplicate();
+        for (long i = 0; i < recordCount; i++) {
+            consumer.accept(buffer.getLong(), buffer.getLong());
+        }
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public List<String> getTags() {
+        return tags;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long userId, long mask);
+    }
+}
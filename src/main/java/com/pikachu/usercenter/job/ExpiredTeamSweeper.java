@@ -0,0 +1,158 @@
+package com.pikachu.usercenter.job;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.pikachu.usercenter.config.TeamConfig;
+import com.pikachu.usercenter.lock.LockManager;
+import com.pikachu.usercenter.model.entity.Team;
+import com.pikachu.usercenter.service.AdminService;
+import com.pikachu.usercenter.service.TeamService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 过期队伍清理
+ * 定时从数据库加载两个加载间隔内过期的队伍放入分层时间轮，每个 tick 取出到期的队伍分批删除，
+ * 同时删除队伍~成员关系，同步成员已加入的队伍数、队伍名额、可浏览队伍索引及管理员队伍列表缓存
+ * <p>
+ * 每个加载间隔只有一个节点加载，加载范围覆盖两个间隔，接手的节点会重新加载上一个节点未处理的队伍；
+ * 删除按过期时间条件执行，多个节点处理同一个队伍或队伍过期时间被延后时不会误删
+ * 加载的互斥通过 {@link LockManager#tryLease} 的租约实现，与业务锁使用同一种加锁方式：
+ * 分布式部署时租约在 Redis 中，节点间互斥；lock-config.mode 为 local 时租约在本节点内存中，
+ * 不依赖 Redis，只适用于单节点部署
+ * <p>
+ * 加载和清理在独立的调度线程池中执行，不与其它 @Scheduled 任务共用 Spring 默认的单线程调度器，
+ * 耗时较长的定时任务不会推迟清理
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class ExpiredTeamSweeper {
+
+    private static final String LOAD_LOCK_KEY = "user-center:team:expire:load";
+
+    @Resource
+    private TeamService teamService;
+    @Resource
+    private AdminService adminService;
+    @Resource
+    private LockManager lockManager;
+    @Resource
+    private TeamConfig teamConfig;
+
+    private HierarchicalTimingWheel<Long> wheel;
+
+    /**
+     * 加载、清理各一个线程，加载较慢时不推迟清理
+     */
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+    /**
+     * 已放入时间轮的队伍 id，避免重复加载
+     */
+    private final Set<Long> scheduled = new HashSet<>();
+
+    @PostConstruct
+    public void init() {
+        wheel = new HierarchicalTimingWheel<>(teamConfig.getSweepTick(), teamConfig.getSweepWheelSize(),
+                System.currentTimeMillis());
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("team-sweeper-");
+        scheduler.initialize();
+    }
+
+    /**
+     * 应用启动完成后开始定时加载和清理
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::load, Duration.ofMillis(teamConfig.getSweepLoadInterval()));
+        scheduler.scheduleWithFixedDelay(this::sweep, Duration.ofMillis(teamConfig.getSweepTick()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * 加载即将过期及已过期未清理的队伍
+     * 租约不主动释放，租期为一个加载间隔，期间其它节点不再加载
+     */
+    public void load() {
+        long interval = teamConfig.getSweepLoadInterval();
+        try {
+            if (!lockManager.tryLease(LOAD_LOCK_KEY, Duration.ofMillis(interval))) {
+                return;
+            }
+            LambdaQueryWrapper<Team> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.select(Team::getId, Team::getExpireTime);
+            queryWrapper.le(Team::getExpireTime, new Date(System.currentTimeMillis() + 2 * interval));
+            queryWrapper.orderByAsc(Team::getExpireTime);
+            queryWrapper.last("limit " + teamConfig.getSweepLoadLimit());
+            List<Team> teams = teamService.list(queryWrapper);
+
+            int added = 0;
+            int scheduledCount;
+            synchronized (this) {
+                for (Team team : teams) {
+                    if (scheduled.add(team.getId())) {
+                        wheel.add(team.getExpireTime().getTime(), team.getId());
+                        added++;
+                    }
+                }
+                scheduledCount = scheduled.size();
+            }
+            log.info("load expiring teams, {} added, {} scheduled", added, scheduledCount);
+        } catch (Exception e) {
+            log.error("load expiring teams error", e);
+        }
+    }
+
+    /**
+     * 取出到期的队伍，分批删除
+     */
+    public void sweep() {
+        List<Long> dueIdList;
+        synchronized (this) {
+            dueIdList = wheel.advance(System.currentTimeMillis());
+            dueIdList.forEach(scheduled::remove);
+        }
+        if (dueIdList.isEmpty()) {
+            return;
+        }
+
+        int batchSize = teamConfig.getSweepBatchSize();
+        int expired = 0;
+        for (int from = 0; from < dueIdList.size(); from += batchSize) {
+            List<Long> batch = dueIdList.subList(from, Math.min(from + batchSize, dueIdList.size()));
+            try {
+                expired += teamService.expireTeams(batch).size();
+            } catch (Exception e) {
+                // 未删除的队伍在下次加载时重新放入时间轮
+                log.error("expire teams error", e);
+            }
+        }
+        if (expired > 0) {
+            try {
+                adminService.removeListTeamCache();
+            } catch (Exception e) {
+                log.error("redis delete key error", e);
+            }
+        }
+        log.info("sweep expired teams, {} due, {} expired", dueIdList.size(), expired);
+    }
+}
@@ -0,0 +1,148 @@
+package com.pikachu.usercenter.job;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮
+ * 第 0 层每格一个 tick，第 i 层每格为第 i-1 层转一圈的时长，超出最上层范围时自动增加一层；
+ * 加入和推进的耗时与任务总数无关，推进时只处理经过的格子，上层的格子到期时将其中的任务降到下层
+ * <p>
+ * 任务在时间推进到不早于其到期时间后取出，最多晚一个 tick，不会提前；
+ * 到期时间早于当前时间的任务在下一次推进时取出
+ * <p>
+ * 非线程安全，由调用方同步
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final List<Level<T>> levels = new ArrayList<>();
+    private final List<T> due = new ArrayList<>();
+    private int size;
+
+    /**
+     * @param tickMs    第 0 层每格的时长（毫秒）
+     * @param wheelSize 每层的格数
+     * @param startMs   起始时间（毫秒）
+     */
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize at least 2");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        levels.add(new Level<>(1, wheelSize, Math.floorDiv(startMs, tickMs)));
+    }
+
+    /**
+     * 加入任务
+     *
+     * @param deadlineMs 到期时间（毫秒）
+     * @param task       任务
+     */
+    public void add(long deadlineMs, T task) {
+        // 向上取整到 tick，保证不会提前取出
+        place(-Math.floorDiv(-deadlineMs, tickMs), task);
+        size++;
+    }
+
+    /**
+     * 推进到指定时间，取出所有已到期的任务
+     *
+     * @param nowMs 当前时间（毫秒）
+     * @return 已到期的任务，按到期的先后顺序
+     */
+    public List<T> advance(long nowMs) {
+        long target = Math.floorDiv(nowMs, tickMs);
+        Level<T> first = levels.get(0);
+        while (first.current < target) {
+            tick(0);
+        }
+        List<T> result = new ArrayList<>(due);
+        due.clear();
+        size -= result.size();
+        return result;
+    }
+
+    /**
+     * @return 未取出的任务数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 第 level 层前进一格，转完一圈时上一层也前进一格
+     */
+    private void tick(int level) {
+        Level<T> wheel = levels.get(level);
+        wheel.current += wheel.span;
+        if (level + 1 < levels.size() && wheel.current % (wheel.span * wheelSize) == 0) {
+            tick(level + 1);
+        }
+        List<Entry<T>> bucket = wheel.drain(wheel.current);
+        for (Entry<T> entry : bucket) {
+            place(entry.expiration, entry.task);
+        }
+    }
+
+    private void place(long expiration, T task) {
+        if (expiration <= levels.get(0).current) {
+            due.add(task);
+            return;
+        }
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                Level<T> top = levels.get(i - 1);
+                long span = top.span * wheelSize;
+                levels.add(new Level<>(span, wheelSize, Math.floorDiv(levels.get(0).current, span) * span));
+            }
+            Level<T> wheel = levels.get(i);
+            if (expiration < wheel.current + wheel.span * wheelSize) {
+                wheel.bucket(expiration).add(new Entry<>(expiration, task));
+                return;
+            }
+        }
+    }
+
+    private static class Level<T> {
+        /**
+         * 每格的 tick 数
+         */
+        final long span;
+        final List<Entry<T>>[] buckets;
+        /**
+         * 本层当前格的起始 tick，按 span 对齐
+         */
+        long current;
+
+        @SuppressWarnings("unchecked")
+        Level(long span, int wheelSize, long current) {
+            this.span = span;
+            this.buckets = new List[wheelSize];
+            this.current = current;
+        }
+
+        List<Entry<T>> bucket(long expiration) {
+            int index = (int) Math.floorMod(expiration / span, (long) buckets.length);
+            if (buckets[index] == null) {
+                buckets[index] = new ArrayList<>();
+            }
+            return buckets[index];
+        }
+
+        List<Entry<T>> drain(long expiration) {
+            int index = (int) Math.floorMod(expiration / span, (long) buckets.length);
+            List<Entry<T>> bucket = buckets[index];
+            buckets[index] = null;
+            return bucket == null ? List.of() : bucket;
+        }
+    }
+
+    private record Entry<T>(long expiration, T task) {
+    }
+}
@@ -0,0 +1,118 @@
+package com.pikachu.usercenter.job;
+
+import com.pikachu.usercenter.index.TopKSelector;
+import com.pikachu.usercenter.index.UserMatcher;
+import com.pikachu.usercenter.index.UserTagIndex;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户匹配结果预计算缓存
+ * 每个用户的 Top-N 匹配用户保存在 Redis 有序集合中，成员为用户 id，分值为距离
+ * 用户登录或修改标签时异步刷新，匹配接口直接读取，缺失时再实时计算
+ * <p>
+ * 成员为补零到定长的 id，距离相同时按字典序排列即按 id 升序，与实时计算的顺序一致；
+ * 没有匹配结果的用户写入一个空标记，不会每次都重新计算
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Component
+@Slf4j
+public class MatchPreCache {
+
+    /**
+     * 预计算的匹配用户个数（匹配接口每次最多返回 9 个）
+     */
+    public static final int MATCH_CACHE_SIZE = 9;
+
+    private static final String KEY_PREFIX = "user-center:user:match:";
+
+    /**
+     * 没有匹配结果时的标记成员，分值小于任何距离
+     */
+    private static final String EMPTY_MEMBER = "empty";
+
+    /**
+     * Long 的最大位数，成员补零到该长度
+     */
+    private static final String MEMBER_FORMAT = "%019d";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private UserTagIndex userTagIndex;
+    @Resource
+    private UserMatcher userMatcher;
+
+    /**
+     * 异步刷新用户的匹配结果
+     *
+     * @param userId 用户 id
+     * @param tags   用户标签列表
+     */
+    @Async
+    public void refresh(Long userId, List<String> tags) {
+        if (!userTagIndex.isReady()) {
+            return;
+        }
+        String redisKey = KEY_PREFIX + userId;
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+            // 与实时计算相同，没有标签的用户也按空标签匹配
+            TopKSelector topK = userMatcher.match(userId, userTagIndex.maskOf(tags), MATCH_CACHE_SIZE);
+            long[] ids = topK.sortedIds();
+            int[] distances = topK.sortedDistances();
+            for (int i = 0; i < ids.length; i++) {
+                tuples.add(new DefaultTypedTuple<>(String.format(MEMBER_FORMAT, ids[i]), (double) distances[i]));
+            }
+            if (tuples.isEmpty()) {
+                tuples.add(new DefaultTypedTuple<>(EMPTY_MEMBER, -1.0));
+            }
+            // 先写临时 key 并设置过期时间再重命名，重命名保留过期时间，
+            // 读取方不会看到写了一半的结果，中途失败也不会留下不过期的 key
+            String tmpKey = redisKey + ":tmp-" + UUID.randomUUID();
+            stringRedisTemplate.opsForZSet().add(tmpKey, tuples);
+            stringRedisTemplate.expire(tmpKey, 1, TimeUnit.DAYS);
+            stringRedisTemplate.rename(tmpKey, redisKey);
+        } catch (Exception e) {
+            log.error("refresh match cache error, userId: {}", userId, e);
+        }
+    }
+
+    /**
+     * 读取预计算的匹配结果
+     *
+     * @param userId 用户 id
+     * @param num    匹配个数
+     * @return 按匹配度排序的用户 id 列表，没有匹配用户时返回空列表，没有预计算结果时返回 null
+     */
+    public List<Long> get(Long userId, int num) {
+        Set<String> members;
+        try {
+            members = stringRedisTemplate.opsForZSet().range(KEY_PREFIX + userId, 0, num - 1);
+        } catch (Exception e) {
+            log.error("redis get key error", e);
+            return null;
+        }
+        if (CollectionUtils.isEmpty(members)) {
+            return null;
+        }
+        if (members.contains(EMPTY_MEMBER)) {
+            return List.of();
+        }
+        return members.stream().map(Long::valueOf).toList();
+    }
+}
@@ -1,15 +1,16 @@
 package com.pikachu.usercenter.job;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.pikachu.usercenter.cache.TwoTierCache;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.common.PageParams;
 import com.pikachu.usercenter.model.entity.User;
 import com.pikachu.usercenter.service.UserService;
+import com.pikachu.usercenter.utils.PageUtils;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -24,11 +25,13 @@ import java.util.concurrent.TimeUnit;
 public class RecommendPreCache {
 
     @Resource
-    private RedisTemplate<String, Object> redisTemplate;
+    private TwoTierCache<KeysetPage<Long>> userSearchCache;
     @Resource
     private UserService userService;
     @Resource
     private RedissonClient redissonClient;
+    @Resource
+    private TwoTierCache<Long> countCache;
 
     /**
      * 主页推荐定时任务缓存
@@ -46,13 +49,16 @@ public class RecommendPreCache {
         log.info("lock user-center:user:search:do-ache");
         try {
             log.info("begin doCacheRecommend");
-            ValueOperations<String, Object> opsForValue = redisTemplate.opsForValue();
-            QueryWrapper<User> userQueryWrapper = new QueryWrapper<>();
-            userQueryWrapper.eq("is_delete", false);
             for (int current = 1; current <= 5; current++) {
-                String redisKey = String.format("user-center:user:search-%d-%d", current, 5);
-                Page<User> userPage = userService.page(new Page<>(current, 5), userQueryWrapper);
-                opsForValue.set(redisKey, userPage, 1, TimeUnit.DAYS);
+                QueryWrapper<User> userQueryWrapper = new QueryWrapper<>();
+                userQueryWrapper.select("id");
+                userQueryWrapper.eq("is_delete", false);
+                // 写入搜索用户的缓存，只缓存本页用户 id
+                // 各页的软过期、硬过期时间随机化，不会在同一时刻一起过期
+                String redisKey = String.format("user-center:user:search-ids-%d-%d", current, 5);
+                KeysetPage<Long> userIdPage = PageUtils.page(userService, userQueryWrapper,
+                        new PageParams((long) current, 5L), User::getId, countCache).map(User::getId);
+                userSearchCache.put(redisKey, userIdPage);
             }
             log.info("end doCacheRecommend");
         } catch (Exception e) {
@@ -0,0 +1,16 @@
+package com.pikachu.usercenter.lock;
+
+/**
+ * 已获得的锁，只能由加锁的线程释放
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public interface LockHandle extends AutoCloseable {
+
+    /**
+     * 释放锁
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,41 @@
+package com.pikachu.usercenter.lock;
+
+import java.time.Duration;
+
+/**
+ * 按键加锁
+ * 同一个键同时只能被一个线程持有，锁可重入，用 try-with-resources 释放：
+ * <pre>{@code
+ * try (LockHandle lock = lockManager.tryLock(key, Duration.ZERO)) {
+ *     if (lock == null) {
+ *         // 未获得锁
+ *     }
+ * }
+ * }</pre>
+ * 多个节点中只需一个执行的定时任务使用 {@link #tryLease} 获取租约，租约到期自动失效，不需要释放
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public interface LockManager {
+
+    /**
+     * 尝试加锁
+     *
+     * @param key  锁的键
+     * @param wait 最长等待时间，为 0 时不等待
+     * @return 锁，未获得时为 null
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    LockHandle tryLock(String key, Duration wait) throws InterruptedException;
+
+    /**
+     * 尝试获取租约，租期内同一个键不能再次获取，包括获取租约的线程本身
+     * 租约不与线程绑定，不能主动释放，到期后自动失效
+     *
+     * @param key   租约的键，数量应有限，如定时任务名
+     * @param lease 租期
+     * @return 是否获得租约
+     */
+    boolean tryLease(String key, Duration lease);
+}
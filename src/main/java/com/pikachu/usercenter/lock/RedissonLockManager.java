@@ -0,0 +1,43 @@
+package com.pikachu.usercenter.lock;
+
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redisson 分布式锁
+ * 不指定租期，由看门狗续期，持有期间节点宕机时锁在看门狗超时后自动释放
+ * 租约为带过期时间的 SET NX，不可重入
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class RedissonLockManager implements LockManager {
+
+    private final RedissonClient redissonClient;
+
+    public RedissonLockManager(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    @Override
+    public LockHandle tryLock(String key, Duration wait) throws InterruptedException {
+        RLock lock = redissonClient.getLock(key);
+        if (!lock.tryLock(wait.toMillis(), -1, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        return () -> {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        };
+    }
+
+    @Override
+    public boolean tryLease(String key, Duration lease) {
+        return redissonClient.getBucket(key, StringCodec.INSTANCE).setIfAbsent("1", lease);
+    }
+}
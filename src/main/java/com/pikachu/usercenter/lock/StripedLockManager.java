@@ -0,0 +1,83 @@
+package com.pikachu.usercenter.lock;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地分段锁
+ * 键按哈希映射到固定数量的 {@link ReentrantLock} 上，不同的键可能共用一把锁，
+ * 内存占用与键的数量无关，也不需要清理
+ * <p>
+ * 只在本节点内互斥，用于单节点部署，或作为 {@link TwoLevelLockManager} 的第一级
+ * 同一线程先后加两个共用一把锁的键时按重入处理；不同线程以不同顺序加多把锁时应指定等待时间，避免互相等待
+ * 租约按键记录到期时间，不分段
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class StripedLockManager implements LockManager {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * 租约的键到到期时间（System.nanoTime）
+     */
+    private final ConcurrentMap<String, Long> leases = new ConcurrentHashMap<>();
+
+    /**
+     * @param stripes 分段数，向上取整为 2 的幂
+     */
+    public StripedLockManager(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    @Override
+    public LockHandle tryLock(String key, Duration wait) throws InterruptedException {
+        ReentrantLock lock = stripe(key);
+        boolean locked = wait.isZero() ? lock.tryLock() : lock.tryLock(wait.toNanos(), TimeUnit.NANOSECONDS);
+        if (!locked) {
+            return null;
+        }
+        return () -> {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        };
+    }
+
+    @Override
+    public boolean tryLease(String key, Duration lease) {
+        long now = System.nanoTime();
+        long expireAt = now + lease.toNanos();
+        boolean[] acquired = new boolean[1];
+        leases.compute(key, (k, current) -> {
+            if (current != null && current - now > 0) {
+                return current;
+            }
+            acquired[0] = true;
+            return expireAt;
+        });
+        return acquired[0];
+    }
+
+    private ReentrantLock stripe(String key) {
+        int hash = key.hashCode();
+        // 高位参与运算，分段数较少时也能分散
+        return locks[(hash ^ (hash >>> 16)) & mask];
+    }
+}
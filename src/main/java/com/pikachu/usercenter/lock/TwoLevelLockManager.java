@@ -0,0 +1,59 @@
+package com.pikachu.usercenter.lock;
+
+import java.time.Duration;
+
+/**
+ * 两级锁
+ * 先加本地锁再加分布式锁，本节点内对同一个键的竞争在本地锁上排队，
+ * 只有拿到本地锁的线程才会请求分布式锁，竞争不会放大到 Redis
+ * 租约每个租期只获取一次，没有需要在本地排队的竞争，直接使用分布式锁的租约
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class TwoLevelLockManager implements LockManager {
+
+    private final LockManager local;
+    private final LockManager distributed;
+
+    public TwoLevelLockManager(LockManager local, LockManager distributed) {
+        this.local = local;
+        this.distributed = distributed;
+    }
+
+    @Override
+    public LockHandle tryLock(String key, Duration wait) throws InterruptedException {
+        long deadline = System.nanoTime() + wait.toNanos();
+        LockHandle localLock = local.tryLock(key, wait);
+        if (localLock == null) {
+            return null;
+        }
+
+        LockHandle distributedLock;
+        try {
+            // 两级共用一个等待时间
+            Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+            distributedLock = distributed.tryLock(key, remaining);
+        } catch (InterruptedException | RuntimeException e) {
+            localLock.close();
+            throw e;
+        }
+        if (distributedLock == null) {
+            localLock.close();
+            return null;
+        }
+
+        return () -> {
+            try {
+                distributedLock.close();
+            } finally {
+                localLock.close();
+            }
+        };
+    }
+
+    @Override
+    public boolean tryLease(String key, Duration lease) {
+        return distributed.tryLease(key, lease);
+    }
+}
@@ -2,6 +2,7 @@ package com.pikachu.usercenter.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.pikachu.usercenter.model.entity.Team;
+import org.apache.ibatis.annotations.Param;
 
 /**
  * @author 28944
@@ -11,6 +12,23 @@ import com.pikachu.usercenter.model.entity.Team;
  */
 public interface TeamMapper extends BaseMapper<Team> {
 
+    /**
+     * 队伍人数加一
+     * 人数已满时不更新，判断与更新在同一条语句中完成，并发加入不会超员
+     *
+     * @param teamId 队伍 id
+     * @return 更新行数，0 表示队伍已满员或不存在
+     */
+    int increaseMemberCount(@Param("teamId") Long teamId);
+
+    /**
+     * 队伍人数减一，不会减到 0 以下
+     *
+     * @param teamId 队伍 id
+     * @return 更新行数
+     */
+    int decreaseMemberCount(@Param("teamId") Long teamId);
+
 }
 
 
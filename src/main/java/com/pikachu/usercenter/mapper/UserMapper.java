@@ -1,7 +1,13 @@
 package com.pikachu.usercenter.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.pikachu.usercenter.model.entity.User;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.Collection;
 
 /**
  * @author 28944
@@ -11,6 +17,36 @@ import com.pikachu.usercenter.model.entity.User;
  */
 public interface UserMapper extends BaseMapper<User> {
 
+    /**
+     * 流式查询用户
+     * 使用 MySQL 流式结果集逐行读取，每读取一行回调一次 handler，不在内存中堆积整个结果集
+     * <p>
+     * 注意：自定义 SQL 不会自动追加逻辑删除条件；
+     * 读取期间该数据库连接被占用，handler 中不能在同一连接（同一事务）上执行其它查询
+     *
+     * @param queryWrapper 查询条件，可通过 select 指定查询字段
+     * @param handler      结果处理器
+     */
+    void streamList(@Param(Constants.WRAPPER) Wrapper<User> queryWrapper, ResultHandler<User> handler);
+
+    /**
+     * 批量增减用户已加入的队伍数，不会减到 0 以下
+     *
+     * @param userIds 用户 id，不能为空
+     * @param delta   增量
+     * @return 更新行数
+     */
+    int addJoinedTeamCount(@Param("userIds") Collection<Long> userIds, @Param("delta") int delta);
+
+    /**
+     * 已加入的队伍数未达上限时加一，以条件更新判断，并发创建、加入队伍时不会超过上限
+     *
+     * @param userId 用户 id
+     * @param limit  加入上限，不大于 0 时不限制
+     * @return 更新行数，为 0 表示已达上限
+     */
+    int increaseJoinedTeamCount(@Param("userId") Long userId, @Param("limit") int limit);
+
 }
 
 
@@ -39,6 +39,12 @@ public class Team implements Serializable {
      */
     private Integer maxNumber;
 
+    /**
+     * 队伍当前人数
+     * 由建队、加入、退出、解散时的条件更新维护，修改队伍信息时不写回
+     */
+    private Integer memberCount;
+
     /**
      * 过期时间
      */
@@ -86,6 +92,12 @@ public class Team implements Serializable {
     @TableLogic
     private Boolean isDelete;
 
+    /**
+     * 版本号，修改队伍信息时作为乐观锁条件
+     */
+    @Version
+    private Integer version;
+
     @Serial
     @TableField(exist = false)
     private static final long serialVersionUID = 1L;
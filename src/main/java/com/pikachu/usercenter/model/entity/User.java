@@ -102,6 +102,11 @@ public class User implements Serializable {
     @TableField(typeHandler = StringListTypeHandler.class)
     private List<String> tags;
 
+    /**
+     * 已加入的队伍数（含自己创建的队伍）
+     */
+    private Integer joinedTeamCount;
+
     @Serial
     @TableField(exist = false)
     private static final long serialVersionUID = 1L;
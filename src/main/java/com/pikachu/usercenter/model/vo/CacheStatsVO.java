@@ -0,0 +1,43 @@
+package com.pikachu.usercenter.model.vo;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 缓存统计视图对象
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Data
+public class CacheStatsVO implements Serializable {
+    @Serial
+    private static final long serialVersionUID = -2764318801649375512L;
+
+    /**
+     * 缓存名称
+     */
+    private String name;
+    /**
+     * 一级缓存当前条目数（估计值）
+     */
+    private Long localSize;
+    private Long localHits;
+    private Long localMisses;
+    private Long redisHits;
+    private Long redisMisses;
+    /**
+     * 因访问次数不足未写入缓存的加载次数
+     */
+    private Long rejects;
+    /**
+     * 读到已软过期条目的次数，每次都直接返回旧值
+     */
+    private Long staleHits;
+    /**
+     * 后台刷新成功的次数
+     */
+    private Long refreshes;
+}
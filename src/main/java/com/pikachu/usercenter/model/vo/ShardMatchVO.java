@@ -0,0 +1,26 @@
+package com.pikachu.usercenter.model.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 分片匹配结果视图对象
+ * 按距离升序排列的用户 id 及对应的距离
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShardMatchVO implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 3391829105436618452L;
+
+    private long[] ids;
+    private int[] distances;
+}
@@ -0,0 +1,39 @@
+package com.pikachu.usercenter.model.vo;
+
+import lombok.Data;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * 请求合并统计视图对象
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Data
+public class SingleFlightStatsVO implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 5127739640286153042L;
+
+    /**
+     * 正在加载的键数
+     */
+    private Long inFlight;
+    /**
+     * 实际执行的加载次数
+     */
+    private Long loads;
+    /**
+     * 等待并共用本节点其它调用加载结果的次数
+     */
+    private Long coalesced;
+    /**
+     * 跨节点模式下直接使用其它节点加载结果的次数
+     */
+    private Long remoteHits;
+    /**
+     * 跨节点模式下等锁超时、退化为本节点加载的次数
+     */
+    private Long lockTimeouts;
+}
@@ -26,6 +26,7 @@ public class TeamUserVO implements Serializable {
     private String name;
     private String description;
     private Integer maxNumber;
+    private Integer memberCount;
     private Date expireTime;
     private Long userId;
     private Integer status;
@@ -1,12 +1,17 @@
 package com.pikachu.usercenter.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.pikachu.usercenter.common.PageParams;
 import com.pikachu.usercenter.model.dto.request.admin.TeamUpdateRequestAdmin;
 import com.pikachu.usercenter.model.dto.request.admin.UserUpdateRequestAdmin;
 import com.pikachu.usercenter.model.entity.Team;
 import com.pikachu.usercenter.model.entity.User;
+import com.pikachu.usercenter.model.vo.CacheStatsVO;
+import com.pikachu.usercenter.model.vo.SingleFlightStatsVO;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 /**
  * 管理员服务
  *
@@ -21,7 +26,17 @@ public interface AdminService {
      * @param size    每页条数
      * @return 查询到的用户页
      */
-    IPage<User> listUser(Long current, Long size);
+    default IPage<User> listUser(Long current, Long size) {
+        return listUser(new PageParams(current, size));
+    }
+
+    /**
+     * 查询用户列表，支持按页码或游标分页
+     *
+     * @param pageParams 分页参数
+     * @return 查询到的用户页，包含下一页游标
+     */
+    IPage<User> listUser(PageParams pageParams);
 
     /**
      * 查询队伍列表
@@ -30,12 +45,28 @@ public interface AdminService {
      * @param size    每页记录数
      * @return 拆卸拿到的队伍页
      */
-    IPage<Team> listTeam(Long current, Long size);
+    default IPage<Team> listTeam(Long current, Long size) {
+        return listTeam(new PageParams(current, size));
+    }
+
+    /**
+     * 查询队伍列表，支持按页码或游标分页
+     *
+     * @param pageParams 分页参数
+     * @return 查询到的队伍页，包含下一页游标
+     */
+    IPage<Team> listTeam(PageParams pageParams);
 
     @Transactional
     User updateUser(UserUpdateRequestAdmin params);
 
-    @Transactional
+    /**
+     * 修改队伍信息，按版本号条件更新，冲突时重新读取再试
+     * 不在事务中执行，可重复读隔离级别下事务内重新读取仍是旧版本，重试不会成功
+     *
+     * @param params 修改内容
+     * @return 修改后的队伍
+     */
     Team updateTeam(TeamUpdateRequestAdmin params);
 
     @Transactional
@@ -43,4 +74,23 @@ public interface AdminService {
 
     @Transactional
     void deleteTeam(Long TeamId);
+
+    /**
+     * 查询各两级缓存的命中统计
+     *
+     * @return 缓存统计列表
+     */
+    List<CacheStatsVO> getCacheStats();
+
+    /**
+     * 查询请求合并统计
+     *
+     * @return 加载次数及被合并的调用次数
+     */
+    SingleFlightStatsVO getSingleFlightStats();
+
+    /**
+     * 删除管理员队伍列表的缓存
+     */
+    void removeListTeamCache();
 }
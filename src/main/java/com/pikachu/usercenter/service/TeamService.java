@@ -2,6 +2,7 @@ package com.pikachu.usercenter.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.pikachu.usercenter.common.PageParams;
 import com.pikachu.usercenter.model.dto.request.team.TeamCreateRequest;
 import com.pikachu.usercenter.model.dto.request.team.TeamUpdateRequest;
 import com.pikachu.usercenter.model.entity.Team;
@@ -10,6 +11,7 @@ import com.pikachu.usercenter.model.vo.UserVO;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -40,12 +42,12 @@ public interface TeamService extends IService<Team> {
 
     /**
      * 更新队伍信息
+     * 按版本号条件更新，冲突时重新读取再试；不开启事务，重试时才能读到其它请求提交的新版本
      *
      * @param teamUpdateRequest 更新队伍信息底箱
      * @param request
      * @return 更新后的队伍信息对象
      */
-    @Transactional
     TeamUserVO updateTeam(TeamUpdateRequest teamUpdateRequest, HttpServletRequest request);
 
     /**
@@ -56,6 +58,15 @@ public interface TeamService extends IService<Team> {
      */
     TeamUserVO getTeamUserVOById(Long teamId);
 
+    /**
+     * 批量组装队伍信息
+     * 一次查询所有队伍的成员关系，成员信息从用户缓存批量读取，查询次数与队伍数无关
+     *
+     * @param teams 队伍列表
+     * @return 队伍信息列表，顺序与 teams 一致
+     */
+    List<TeamUserVO> getTeamUserVOs(List<Team> teams);
+
     /**
      * 搜索队伍
      *
@@ -64,7 +75,18 @@ public interface TeamService extends IService<Team> {
      * @param keyword 搜索关键词
      * @return 搜索到的队伍信息分页对象
      */
-    IPage<TeamUserVO> searchTeams(Long current, Long size, String keyword);
+    default IPage<TeamUserVO> searchTeams(Long current, Long size, String keyword) {
+        return searchTeams(new PageParams(current, size), keyword);
+    }
+
+    /**
+     * 搜索队伍，支持按页码或游标分页
+     *
+     * @param pageParams 分页参数
+     * @param keyword    搜索关键词
+     * @return 搜索到的队伍信息分页对象，包含下一页游标
+     */
+    IPage<TeamUserVO> searchTeams(PageParams pageParams, String keyword);
 
     /**
      * 加入队伍
@@ -87,12 +109,12 @@ public interface TeamService extends IService<Team> {
 
     /**
      * 转让队伍
+     * 与更新队伍信息相同，按版本号条件更新，不开启事务
      *
      * @param teamId  队伍id
      * @param userId  受让用户id
      * @param request
      */
-    @Transactional
     void transferTeam(Long teamId, Long userId, HttpServletRequest request);
 
     /**
@@ -127,4 +149,33 @@ public interface TeamService extends IService<Team> {
      */
     public List<UserVO> getTeamMembers(Long teamId);
 
+    /**
+     * 将用户移出队伍，同步队伍人数和该用户已加入的队伍数
+     *
+     * @param teamId 队伍 id
+     * @param userId 用户 id
+     * @return 用户是否在队伍中并已移出
+     */
+    boolean removeMember(Long teamId, Long userId);
+
+    /**
+     * 删除队伍的全部队伍~成员关系，同步各成员已加入的队伍数
+     * 用于解散或删除队伍，队伍本身的人数不再维护
+     *
+     * @param teamId 队伍 id
+     * @return 是否删除了关系数据
+     */
+    boolean removeAllMembers(Long teamId);
+
+    /**
+     * 删除已过期的队伍及其队伍~成员关系，同步各成员已加入的队伍数、队伍名额及可浏览队伍索引
+     * 过期时间已被延后或已被删除的队伍跳过，重复清理同一个队伍没有影响
+     * 队伍名额及可浏览队伍索引在事务提交后同步；按 team_user 的 team_id 索引锁定成员关系
+     *
+     * @param teamIds 队伍 id
+     * @return 本次删除的队伍 id
+     */
+    @Transactional
+    List<Long> expireTeams(Collection<Long> teamIds);
+
 }
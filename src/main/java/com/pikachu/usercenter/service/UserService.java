@@ -1,8 +1,10 @@
 package com.pikachu.usercenter.service;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.pikachu.usercenter.common.PageParams;
 import com.pikachu.usercenter.model.dto.request.user.UserUpdateRequest;
 import com.pikachu.usercenter.model.entity.User;
 import com.pikachu.usercenter.model.vo.LoginUserVO;
@@ -10,8 +12,10 @@ import com.pikachu.usercenter.model.vo.UserVO;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * @author 28944
@@ -61,7 +65,18 @@ public interface UserService extends IService<User> {
      * @param pageSize   每页条数
      * @return 搜索到的用户列表
      */
-    IPage<UserVO> searchUsers(Map<String, Object> conditions, Long current, Long pageSize);
+    default IPage<UserVO> searchUsers(Map<String, Object> conditions, Long current, Long pageSize) {
+        return searchUsers(conditions, new PageParams(current, pageSize));
+    }
+
+    /**
+     * 搜索用户列表（普通用户操作），支持按页码或游标分页
+     *
+     * @param conditions 搜索条件
+     * @param pageParams 分页参数
+     * @return 搜索到的用户列表，包含下一页游标
+     */
+    IPage<UserVO> searchUsers(Map<String, Object> conditions, PageParams pageParams);
 
     /**
      * 根据 id 获取用户信息（脱敏）
@@ -80,6 +95,16 @@ public interface UserService extends IService<User> {
      */
     List<UserVO> listUserVO(QueryWrapper<User> queryWrapper);
 
+    /**
+     * 流式遍历用户（已排除逻辑删除的用户）
+     * 逐行回调 consumer，内存占用与用户总数无关，适用于全表扫描类的任务
+     * consumer 中不要在同一事务内查询数据库
+     *
+     * @param queryWrapper 查询条件，可通过 select 指定查询字段
+     * @param consumer     用户处理逻辑
+     */
+    void streamUsers(LambdaQueryWrapper<User> queryWrapper, Consumer<User> consumer);
+
     /**
      * 更新用户信息
      *
@@ -89,6 +114,23 @@ public interface UserService extends IService<User> {
     @Transactional
     void updateUser(UserUpdateRequest userUpdateRequest, HttpServletRequest request);
 
+    /**
+     * 增减用户已加入的队伍数
+     *
+     * @param userIds 用户 id
+     * @param delta   增量
+     */
+    void addJoinedTeamCount(Collection<Long> userIds, int delta);
+
+    /**
+     * 用户已加入的队伍数未达上限时加一
+     *
+     * @param userId 用户 id
+     * @param limit  加入上限，不大于 0 时不限制
+     * @return 是否未达上限并已加一
+     */
+    boolean increaseJoinedTeamCount(Long userId, int limit);
+
     /**
      * 匹配用户
      *
@@ -1,9 +1,20 @@
 package com.pikachu.usercenter.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.pikachu.usercenter.cache.ActiveTeamIndex;
+import com.pikachu.usercenter.cache.SingleFlightGroup;
+import com.pikachu.usercenter.cache.TwoTierCache;
+import com.pikachu.usercenter.cache.UserEntityCache;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.common.PageCursor;
+import com.pikachu.usercenter.common.PageParams;
+import com.pikachu.usercenter.config.TeamConfig;
 import com.pikachu.usercenter.exception.BusinessException;
+import com.pikachu.usercenter.index.NicknameIndex;
+import com.pikachu.usercenter.index.UserTagIndex;
 import com.pikachu.usercenter.model.dto.request.admin.TeamUpdateRequestAdmin;
 import com.pikachu.usercenter.model.dto.request.admin.UserUpdateRequestAdmin;
 import com.pikachu.usercenter.model.entity.Team;
@@ -11,10 +22,13 @@ import com.pikachu.usercenter.model.entity.TeamUser;
 import com.pikachu.usercenter.model.entity.User;
 import com.pikachu.usercenter.model.enums.ResponseCode;
 import com.pikachu.usercenter.model.enums.TeamStatus;
+import com.pikachu.usercenter.model.vo.CacheStatsVO;
+import com.pikachu.usercenter.model.vo.SingleFlightStatsVO;
 import com.pikachu.usercenter.service.AdminService;
 import com.pikachu.usercenter.service.TeamService;
 import com.pikachu.usercenter.service.TeamUserService;
 import com.pikachu.usercenter.service.UserService;
+import com.pikachu.usercenter.utils.PageUtils;
 import com.pikachu.usercenter.utils.Tools;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -24,10 +38,15 @@ import org.springframework.stereotype.Service;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static com.pikachu.usercenter.utils.TransactionUtils.afterCommit;
+
 /**
  * @author 笨蛋皮卡丘
  * @version 1.0
@@ -44,39 +63,69 @@ public class AdminServiceImpl implements AdminService {
     TeamUserService teamUserService;
     @Resource
     RedisTemplate<String, Object> redisTemplate;
+    @Resource
+    UserTagIndex userTagIndex;
+    @Resource
+    NicknameIndex nicknameIndex;
+    @Resource
+    List<TwoTierCache<?>> twoTierCaches;
+    @Resource
+    TwoTierCache<Long> countCache;
+    @Resource
+    TwoTierCache<KeysetPage<Long>> adminListCache;
+    @Resource
+    SingleFlightGroup singleFlightGroup;
+    @Resource
+    UserEntityCache userEntityCache;
+    @Resource
+    ActiveTeamIndex activeTeamIndex;
+    @Resource
+    TeamConfig teamConfig;
 
     @Override
-    public IPage<User> listUser(Long current, Long size) {
-        String redisKey = String.format("user-center:admin:list-user-%d-%d", current, size);
-        ValueOperations<String, Object> ops = redisTemplate.opsForValue();
-        IPage<User> userIPage = (IPage<User>) ops.get(redisKey);
-        if (userIPage == null) {
-            userIPage = userService.page(new Page<>(current, size));
-            try {
-                ops.set(redisKey, userIPage, 1, TimeUnit.DAYS);
-            } catch (Exception e) {
-                log.error("redis set key error", e);
-            }
-        }
-        userIPage.setRecords(userIPage.getRecords().stream().peek(user -> user.setPassword(null)).collect(Collectors.toList()));
-        return userIPage;
+    public IPage<User> listUser(PageParams pageParams) {
+        // 缓存中只保存本页用户 id，用户信息从用户缓存批量读取，缓存的用户不含密码
+        String redisKey = listKey("user-center:admin:list-user-ids", pageParams);
+        KeysetPage<Long> userIdPage = adminListCache.get(redisKey, () -> PageUtils.page(userService,
+                new QueryWrapper<User>().select("id"), pageParams, User::getId, countCache).map(User::getId));
+
+        // 缓存中的页对象可能被多个请求共享，转换到新的页对象
+        Map<Long, User> userMap = userEntityCache.getAll(userIdPage.getRecords());
+        KeysetPage<User> userPage = userIdPage.map(userMap::get);
+        // 分页结果缓存后被删除的用户
+        userPage.getRecords().removeIf(Objects::isNull);
+        return userPage;
     }
 
     @Override
-    public IPage<Team> listTeam(Long current, Long size) {
-        String redisKey = String.format("user-center:admin:list-team-%d-%d", current, size);
-        ValueOperations<String, Object> ops = redisTemplate.opsForValue();
-        IPage<Team> teamIPage = (IPage<Team>) ops.get(redisKey);
-        if (teamIPage == null) {
-            teamIPage = teamService.page(new Page<>(current, size));
-            try {
-                ops.set(redisKey, teamIPage, 1, TimeUnit.DAYS);
-            } catch (Exception e) {
-                log.error("redis set key error", e);
-            }
+    public IPage<Team> listTeam(PageParams pageParams) {
+        // 缓存中只保存本页队伍 id，队伍信息按 id 批量查询
+        String redisKey = listKey("user-center:admin:list-team-ids", pageParams);
+        KeysetPage<Long> teamIdPage = adminListCache.get(redisKey, () -> PageUtils.page(teamService,
+                new QueryWrapper<Team>().select("id"), pageParams, Team::getId, countCache).map(Team::getId));
+
+        List<Long> teamIdList = teamIdPage.getRecords();
+        Map<Long, Team> teamMap = teamIdList.isEmpty() ? Map.of() : teamService.listByIds(teamIdList).stream()
+                .peek(team -> team.setPassword(null))
+                .collect(Collectors.toMap(Team::getId, Function.identity()));
+        KeysetPage<Team> teamPage = teamIdPage.map(teamMap::get);
+        // 分页结果缓存后被删除的队伍
+        teamPage.getRecords().removeIf(Objects::isNull);
+        return teamPage;
+    }
+
+    /**
+     * 分页缓存键，按页码分页与按游标分页使用不同的键，不返回总数的结果也使用不同的键
+     */
+    private static String listKey(String prefix, PageParams pageParams) {
+        Long lastId = PageCursor.decode(pageParams.getCursor());
+        String redisKey = lastId == null
+                ? String.format("%s-%d-%d", prefix, pageParams.getCurrent(), pageParams.getSize())
+                : String.format("%s-after-%d-%d", prefix, lastId, pageParams.getSize());
+        if (Boolean.FALSE.equals(pageParams.getCount())) {
+            redisKey += "-nocount";
         }
-        teamIPage.setRecords(teamIPage.getRecords().stream().peek(team -> team.setPassword(null)).collect(Collectors.toList()));
-        return teamIPage;
+        return redisKey;
     }
 
     @Override
@@ -91,47 +140,69 @@ public class AdminServiceImpl implements AdminService {
         if (!userService.updateById(user)) {
             throw new BusinessException(ResponseCode.SYSTEM_ERROR, "更新用户信息失败");
         }
+        Long userId = user.getId();
+        afterCommit(() -> userEntityCache.invalidate(userId));
 
         User newUser = userService.getById(user.getId());
+        // 索引在提交后更新，事务回滚时不会留下未提交的标签、昵称
+        List<String> tags = newUser.getTags();
+        String nickname = newUser.getNickname();
+        if (params.getTags() != null) {
+            afterCommit(() -> userTagIndex.update(userId, tags));
+        }
+        if (params.getNickname() != null) {
+            afterCommit(() -> nicknameIndex.update(userId, nickname));
+        }
         newUser.setPassword(null);
-        removeListUserCache();
         return newUser;
     }
 
     @Override
     public Team updateTeam(TeamUpdateRequestAdmin params) {
-        Team team = teamService.getTeamIfExist(params.getId());
+        Integer maxNumber = params.getMaxNumber();
 
-        // 队伍人数不可少于当前队伍已有人数
-        if (params.getMaxNumber() != null
-                && teamService.getTeamMembers(team.getId()).size() > params.getMaxNumber()) {
-            throw new BusinessException(ResponseCode.PARAMS_ERROR, "队伍最大人数不可少于当前队伍人数");
-        }
+        // 不加锁，读取后按版本号条件更新，期间队伍被他人修改时重新读取再试
+        for (int i = 0; i < teamConfig.getUpdateRetries(); i++) {
+            Team team = teamService.getTeamIfExist(params.getId());
 
-        // 拷贝要修改的信息
-        try {
-            BeanUtils.copyProperties(team, params);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
-        }
+            // 队伍人数不可少于当前队伍已有人数
+            if (maxNumber != null && team.getMemberCount() > maxNumber) {
+                throw new BusinessException(ResponseCode.PARAMS_ERROR, "队伍最大人数不可少于当前队伍人数");
+            }
 
-        // 是否设置为了加密队伍
-        Integer status = team.getStatus();
-        if (status != null) {
-            TeamStatus teamStatus = TeamStatus.getEnumByValue(status);
-            if (TeamStatus.SECRET.equals(teamStatus)) {
-                String encryptPassword = Tools.encrypString(team.getPassword());
-                team.setPassword(encryptPassword);
+            // 拷贝要修改的信息
+            try {
+                BeanUtils.copyProperties(team, params);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new RuntimeException(e);
             }
-        }
 
-        // 更新队伍信息
-        if (!teamService.updateById(team)) {
-            throw new BusinessException(ResponseCode.SYSTEM_ERROR, "修改队伍信息失败");
-        }
+            // 是否设置为了加密队伍
+            Integer status = team.getStatus();
+            if (status != null) {
+                TeamStatus teamStatus = TeamStatus.getEnumByValue(status);
+                if (TeamStatus.SECRET.equals(teamStatus)) {
+                    String encryptPassword = Tools.encrypString(team.getPassword());
+                    team.setPassword(encryptPassword);
+                }
+            }
 
-        removeListTeamCache();
-        return teamService.getById(team.getId());
+            // 更新队伍信息，乐观锁插件在条件中追加读到的版本号
+            // 人数只由条件更新维护，写回读到的旧值会覆盖并发加入的结果
+            team.setMemberCount(null);
+            LambdaUpdateWrapper<Team> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.eq(Team::getId, team.getId());
+            if (maxNumber != null) {
+                // 加入队伍不修改版本号，读取后新加入的成员也不能超过新的最大人数
+                updateWrapper.le(Team::getMemberCount, maxNumber);
+            }
+            if (teamService.update(team, updateWrapper)) {
+                Team updated = teamService.getById(team.getId());
+                activeTeamIndex.save(updated);
+                return updated;
+            }
+        }
+        throw new BusinessException(ResponseCode.OTHER, "队伍信息已被修改，请重试");
     }
 
     @Override
@@ -146,14 +217,26 @@ public class AdminServiceImpl implements AdminService {
             throw new BusinessException(ResponseCode.SYSTEM_ERROR);
         }
 
-        // 删除用户相关队伍
+        // 删除用户为队长的队伍
         LambdaQueryWrapper<Team> teamLQW = new LambdaQueryWrapper<>();
         teamLQW.eq(Team::getUserId, userId);
-        teamService.remove(teamLQW);
+        List<Team> captainTeams = teamService.list(teamLQW);
+        if (!captainTeams.isEmpty()) {
+            teamService.remove(teamLQW);
+            captainTeams.forEach(team -> teamService.removeAllMembers(team.getId()));
+            activeTeamIndex.remove(captainTeams.stream().map(Team::getId).toList());
+        }
+        // 退出加入的其它队伍
         LambdaQueryWrapper<TeamUser> teamUserLQW = new LambdaQueryWrapper<>();
+        teamUserLQW.select(TeamUser::getTeamId);
         teamUserLQW.eq(TeamUser::getUserId, userId);
-        teamUserService.remove(teamUserLQW);
+        teamUserService.list(teamUserLQW)
+                .forEach(teamUser -> teamService.removeMember(teamUser.getTeamId(), userId));
 
+        afterCommit(() -> {
+            userTagIndex.remove(userId);
+            userEntityCache.invalidate(userId);
+        });
         removeListUserCache();
 
     }
@@ -173,40 +256,52 @@ public class AdminServiceImpl implements AdminService {
         }
 
         // 删除队伍用户关系
-        LambdaQueryWrapper<TeamUser> teamUserLQW = new LambdaQueryWrapper<>();
-        teamUserLQW.eq(TeamUser::getTeamId, teamId);
-        if (!teamUserService.remove(teamUserLQW)) {
+        if (!teamService.removeAllMembers(teamId)) {
             throw new BusinessException(ResponseCode.SYSTEM_ERROR);
         }
+        activeTeamIndex.remove(List.of(teamId));
 
         removeListTeamCache();
 
     }
 
+    @Override
+    public List<CacheStatsVO> getCacheStats() {
+        return twoTierCaches.stream().map(TwoTierCache::stats).collect(Collectors.toList());
+    }
+
+    @Override
+    public SingleFlightStatsVO getSingleFlightStats() {
+        return singleFlightGroup.stats();
+    }
+
+    /**
+     * 删除用户后失效用户分页缓存，修改用户不影响分页结果中的 id，不需要失效
+     */
     private void removeListUserCache() {
-        BoundValueOperations<String, Object> boundOps = redisTemplate.boundValueOps("");
-        ScanOptions scanOptions = ScanOptions.scanOptions().match("user-center:admin:list-user-*").build();
-
-        Set<String> keys = new HashSet<>();
-        Cursor<String> cursor = boundOps.getOperations().scan(scanOptions);
-        while (cursor.hasNext()) {
-            String key = cursor.next();
-            keys.add(key);
-        }
-        redisTemplate.delete(keys);
+        removeListCache("user-center:admin:list-user-ids-*");
     }
 
-    private void removeListTeamCache() {
-        BoundValueOperations<String, Object> boundOps = redisTemplate.boundValueOps("");
-        ScanOptions scanOptions = ScanOptions.scanOptions().match("user-center:admin:list-team-*").build();
+    @Override
+    public void removeListTeamCache() {
+        removeListCache("user-center:admin:list-team-ids-*");
+    }
 
-        Set<String> keys = new HashSet<>();
-        Cursor<String> cursor = boundOps.getOperations().scan(scanOptions);
-        while (cursor.hasNext()) {
-            String key = cursor.next();
-            keys.add(key);
-        }
-        redisTemplate.delete(keys);
+    /**
+     * 事务提交后删除匹配的 Redis 键并清空本节点的一级缓存，其它节点的一级缓存在其过期后失效
+     */
+    private void removeListCache(String pattern) {
+        afterCommit(() -> {
+            ScanOptions scanOptions = ScanOptions.scanOptions().match(pattern).build();
+            Set<String> keys = new HashSet<>();
+            try (Cursor<String> cursor = redisTemplate.scan(scanOptions)) {
+                while (cursor.hasNext()) {
+                    keys.add(cursor.next());
+                }
+            }
+            redisTemplate.delete(keys);
+            adminListCache.invalidateLocal();
+        });
     }
 
 }
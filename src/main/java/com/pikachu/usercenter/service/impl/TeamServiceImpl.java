@@ -2,11 +2,21 @@ package com.pikachu.usercenter.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.conditions.update.LambdaUpdateChainWrapper;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.pikachu.usercenter.annotation.SingleFlight;
+import com.pikachu.usercenter.cache.ActiveTeamIndex;
+import com.pikachu.usercenter.cache.TeamSeats;
+import com.pikachu.usercenter.cache.TwoTierCache;
+import com.pikachu.usercenter.cache.UserEntityCache;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.common.PageCursor;
+import com.pikachu.usercenter.common.PageParams;
+import com.pikachu.usercenter.config.TeamConfig;
 import com.pikachu.usercenter.exception.BusinessException;
+import com.pikachu.usercenter.lock.LockHandle;
+import com.pikachu.usercenter.lock.LockManager;
 import com.pikachu.usercenter.mapper.TeamMapper;
 import com.pikachu.usercenter.model.dto.request.team.TeamCreateRequest;
 import com.pikachu.usercenter.model.dto.request.team.TeamUpdateRequest;
@@ -21,21 +31,29 @@ import com.pikachu.usercenter.model.vo.UserVO;
 import com.pikachu.usercenter.service.TeamService;
 import com.pikachu.usercenter.service.TeamUserService;
 import com.pikachu.usercenter.service.UserService;
+import com.pikachu.usercenter.utils.PageUtils;
 import com.pikachu.usercenter.utils.Tools;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
+import org.apache.commons.lang3.time.DateUtils;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * @author 28944
@@ -46,6 +64,11 @@ import java.util.concurrent.TimeUnit;
 public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         implements TeamService {
 
+    /**
+     * 索引中的队伍被跳过后不满一页时，最多补取的次数
+     */
+    private static final int HYDRATE_REFILLS = 3;
+
     @Resource
     TeamUserService teamUserService;
 
@@ -53,7 +76,22 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
     UserService userService;
 
     @Resource
-    RedissonClient redissonClient;
+    LockManager lockManager;
+
+    @Resource
+    TwoTierCache<Long> countCache;
+
+    @Resource
+    UserEntityCache userEntityCache;
+
+    @Resource
+    TeamSeats teamSeats;
+
+    @Resource
+    TeamConfig teamConfig;
+
+    @Resource
+    ActiveTeamIndex activeTeamIndex;
 
 
     @Override
@@ -63,14 +101,11 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         teamCreateRequest.setUserId(currentUserId);
 
         // 一个用户同时只能执行一个创建队伍任务
-        RLock userIdLock = redissonClient.getLock(String.format("user-center:team:userId-%d", currentUserId));
-        try {
-            if (!userIdLock.tryLock(0, 0, TimeUnit.MINUTES)) {
-                throw new BusinessException(ResponseCode.OTHER, "操作过于频繁");
-            }
-
+        try (LockHandle ignored = lockOrThrow(userLockKey(currentUserId), Duration.ZERO)) {
             // 创建队伍对象
             Team team = TeamCreateRequest.toTeam(teamCreateRequest);
+            // 队长计入队伍人数
+            team.setMemberCount(1);
             // 是否为私密队伍
             TeamStatus teamStatus = TeamStatus.getEnumByValue(team.getStatus());
             if (TeamStatus.SECRET.equals(teamStatus)) {
@@ -78,6 +113,12 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
                 team.setPassword(encryptPassword);
             }
 
+            // 队长计入已加入的队伍数，以条件更新判断是否超过加入上限
+            if (!userService.increaseJoinedTeamCount(currentUserId, teamConfig.getMaxJoinedTeams())) {
+                throw new BusinessException(ResponseCode.PARAMS_ERROR,
+                        String.format("最多加入 %d 个队伍", teamConfig.getMaxJoinedTeams()));
+            }
+
             // 存储队伍信息
             if (!save(team)) {
                 throw new BusinessException(ResponseCode.SYSTEM_ERROR, "创建队伍失败");
@@ -90,25 +131,18 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
             if (!teamUserService.save(teamUser)) {
                 throw new BusinessException(ResponseCode.SYSTEM_ERROR, "创建队伍失败");
             }
+            teamSeats.joinedAfterCommit(currentUserId);
+            activeTeamIndex.save(team);
 
             return getTeamUserVOById(team.getId());
         } catch (InterruptedException | InvocationTargetException | IllegalAccessException e) {
             throw new BusinessException(ResponseCode.OTHER, "创建队伍失败");
-        } finally {
-            if (userIdLock.isHeldByCurrentThread()) {
-                userIdLock.unlock();
-            }
         }
     }
 
     @Override
     public void dismissTeam(Long teamId, HttpServletRequest request) {
-        RLock teamIdLock = redissonClient.getLock(String.format("user-center:team:teamId-%d", teamId));
-        try {
-            if (!teamIdLock.tryLock(0, 0, TimeUnit.MINUTES)) {
-                throw new BusinessException(ResponseCode.OTHER, "操作过于频繁");
-            }
-
+        try (LockHandle ignored = lockOrThrow(teamLockKey(teamId), Duration.ZERO)) {
             // 获取要解散的队伍
             Team team = getTeamIfExist(teamId);
             // 是否有权解散
@@ -124,55 +158,41 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
             }
 
             // 删除用户~队伍关系表中的关系数据
-            QueryWrapper<TeamUser> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("team_id", teamId);
-            if (!teamUserService.remove(queryWrapper)) {
+            if (!removeAllMembers(teamId)) {
                 throw new BusinessException(ResponseCode.SYSTEM_ERROR, "解散队伍失败");
             }
+            activeTeamIndex.remove(List.of(teamId));
         } catch (InterruptedException e) {
             throw new BusinessException(ResponseCode.OTHER, "解散队伍失败");
-        } finally {
-            if (teamIdLock.isHeldByCurrentThread()) {
-                teamIdLock.unlock();
-            }
         }
     }
 
     @Override
     public TeamUserVO updateTeam(TeamUpdateRequest teamUpdateRequest, HttpServletRequest request) {
-        RLock teamIdLock = redissonClient.getLock(String.format("user-center:team:teamId-%d", teamUpdateRequest.getId()));
-        RLock userIdLock = null;
-        try {
-            for (int i = 0; i < 10; i++) {
-                if (teamIdLock.tryLock(0, 0, TimeUnit.MINUTES)) {
-                    break;
-                }
-                if (i == 9) {
-                    throw new BusinessException(ResponseCode.OTHER, "加入队伍失败");
-                }
-            }
+        Long currentUserId = userService.getCurrentLoginUser(request).getId();
+        Integer maxNumber = teamUpdateRequest.getMaxNumber();
+
+        // 不加锁，读取后按版本号条件更新，期间队伍被他人修改时重新读取再试
+        for (int i = 0; i < teamConfig.getUpdateRetries(); i++) {
             // 要修改信息的队伍是否存在
             Team team = getTeamIfExist(teamUpdateRequest.getId());
 
             // 检查是否为自己的队伍
-            Long currentUserId = userService.getCurrentLoginUser(request).getId();
-            userIdLock = redissonClient.getLock(String.format("user-center:team:userId-%d", currentUserId));
-            if (!userIdLock.tryLock(0, 0, TimeUnit.MINUTES)) {
-                throw new BusinessException(ResponseCode.OTHER, "操作过于频繁");
-            }
-
             if (!isCaptain(team, currentUserId)) {
                 throw new BusinessException(ResponseCode.NO_AUTH, "仅队长可以更新队伍信息");
             }
 
             // 队伍人数不可少于当前队伍已有人数
-            if (teamUpdateRequest.getMaxNumber() != null
-                    && getTeamMembers(team.getId()).size() > teamUpdateRequest.getMaxNumber()) {
+            if (maxNumber != null && team.getMemberCount() > maxNumber) {
                 throw new BusinessException(ResponseCode.PARAMS_ERROR, "队伍最大人数不可少于当前队伍人数");
             }
 
             // 拷贝要修改的信息
-            BeanUtils.copyProperties(team, teamUpdateRequest);
+            try {
+                BeanUtils.copyProperties(team, teamUpdateRequest);
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                throw new BusinessException(ResponseCode.OTHER, "修改队伍信息失败");
+            }
             // 是否设置为了加密队伍
             Integer status = team.getStatus();
             if (status != null) {
@@ -183,23 +203,23 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
                 }
             }
 
-            // 更新队伍信息
-            if (!updateById(team)) {
-                throw new BusinessException(ResponseCode.SYSTEM_ERROR, "修改队伍信息失败");
+            // 更新队伍信息，乐观锁插件在条件中追加读到的版本号
+            // 人数只由条件更新维护，写回读到的旧值会覆盖并发加入的结果
+            team.setMemberCount(null);
+            LambdaUpdateWrapper<Team> updateWrapper = new LambdaUpdateWrapper<>();
+            updateWrapper.eq(Team::getId, team.getId());
+            if (maxNumber != null) {
+                // 加入队伍不修改版本号，读取后新加入的成员也不能超过新的最大人数
+                updateWrapper.le(Team::getMemberCount, maxNumber);
             }
-
-            // 返回修改后的队伍信息
-            return getTeamUserVOById(team.getId());
-        } catch (InterruptedException | InvocationTargetException | IllegalAccessException e) {
-            throw new BusinessException(ResponseCode.OTHER, "修改队伍信息失败");
-        } finally {
-            if (teamIdLock.isHeldByCurrentThread()) {
-                teamIdLock.unlock();
-            }
-            if (userIdLock != null && userIdLock.isHeldByCurrentThread()) {
-                userIdLock.unlock();
+            if (update(team, updateWrapper)) {
+                // 返回修改后的队伍信息，状态、过期时间可能变化，按修改后的队伍同步浏览索引
+                Team updated = getTeamIfExist(team.getId());
+                activeTeamIndex.save(updated);
+                return getTeamUserVOs(List.of(updated)).get(0);
             }
         }
+        throw new BusinessException(ResponseCode.OTHER, "队伍信息已被修改，请重试");
     }
 
     @Override
@@ -208,26 +228,69 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
             throw new BusinessException(ResponseCode.PARAMS_ERROR);
         }
         Team team = getTeamIfExist(teamId);
+        return getTeamUserVOs(List.of(team)).get(0);
+    }
+
+    @Override
+    public List<TeamUserVO> getTeamUserVOs(List<Team> teams) {
+        if (teams.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        List<UserVO> teamMembers = getTeamMembers(teamId);
-        TeamUserVO teamUserVO;
+        // 一次查出所有队伍的队伍~成员关系
+        List<Long> teamIdList = teams.stream().map(Team::getId).toList();
+        LambdaQueryWrapper<TeamUser> teamUserLambdaQueryWrapper = new LambdaQueryWrapper<>();
+        teamUserLambdaQueryWrapper.select(TeamUser::getTeamId, TeamUser::getUserId);
+        teamUserLambdaQueryWrapper.in(TeamUser::getTeamId, teamIdList);
+        Map<Long, List<Long>> memberIdMap = teamUserService.list(teamUserLambdaQueryWrapper).stream()
+                .collect(Collectors.groupingBy(TeamUser::getTeamId,
+                        Collectors.mapping(TeamUser::getUserId, Collectors.toList())));
+
+        // 所有成员去重后从用户缓存批量读取，未缓存的用户一次查询
+        Set<Long> memberIdSet = memberIdMap.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toSet());
+        Map<Long, User> userMap = userEntityCache.getAll(memberIdSet);
+
+        List<TeamUserVO> teamUserVOList = new ArrayList<>(teams.size());
         try {
-            teamUserVO = TeamUserVO.combine(team, teamMembers);
+            for (Team team : teams) {
+                List<UserVO> members = new ArrayList<>();
+                for (Long memberId : memberIdMap.getOrDefault(team.getId(), List.of())) {
+                    User member = userMap.get(memberId);
+                    if (member != null) {
+                        members.add(UserVO.fromUser(member));
+                    }
+                }
+                // 与逐个查询时的成员顺序一致
+                members.sort(Comparator.comparing(UserVO::getId));
+                teamUserVOList.add(TeamUserVO.combine(team, members));
+            }
         } catch (InvocationTargetException | IllegalAccessException e) {
             throw new RuntimeException(e);
         }
-
-        return teamUserVO;
+        return teamUserVOList;
     }
 
     @Override
-    public IPage<TeamUserVO> searchTeams(Long current, Long size, String keyword) {
-        LambdaQueryWrapper<Team> teamLambdaQueryWrapper = new LambdaQueryWrapper<>();
+    @SingleFlight
+    public IPage<TeamUserVO> searchTeams(PageParams pageParams, String keyword) {
+        // 不带关键字时从 Redis 的可浏览队伍索引中取出一页 id，索引不可用时查询数据库
+        if (StringUtils.isBlank(keyword)) {
+            KeysetPage<Long> idPage = activeTeamIndex.page(pageParams);
+            if (idPage != null) {
+                return hydrate(idPage);
+            }
+        }
+
+        QueryWrapper<Team> teamQueryWrapper = new QueryWrapper<>();
+        LambdaQueryWrapper<Team> teamLambdaQueryWrapper = teamQueryWrapper.lambda();
 
         // 筛除私密 / 加密队伍
         teamLambdaQueryWrapper.notIn(Team::getStatus, 1);
         // 筛除已过期队伍
-        teamLambdaQueryWrapper.gt(Team::getExpireTime, new Date());
+        // 当前时间截断到分钟，同一分钟内的查询条件相同，总数缓存才能命中
+        teamLambdaQueryWrapper.gt(Team::getExpireTime, DateUtils.truncate(new Date(), Calendar.MINUTE));
 
         // 如果有搜索关键字，通过关键字模糊匹配
         if (!StringUtils.isBlank(keyword)) {
@@ -236,150 +299,202 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
                     .or().like(Team::getTags, keyword));
         }
 
-        Page<Team> teamPage = page(new Page<>(current, size), teamLambdaQueryWrapper);
-        IPage<TeamUserVO> teamUserVOIPage = teamPage.convert(team -> getTeamUserVOById(team.getId()));
-        return teamUserVOIPage;
+        KeysetPage<Team> teamPage = PageUtils.page(this, teamQueryWrapper, pageParams, Team::getId, countCache);
+        Map<Long, TeamUserVO> teamUserVOMap = getTeamUserVOs(teamPage.getRecords()).stream()
+                .collect(Collectors.toMap(TeamUserVO::getId, Function.identity()));
+        return teamPage.map(team -> teamUserVOMap.get(team.getId()));
+    }
+
+    /**
+     * 按索引中的顺序批量读取一页队伍，已删除或不再可浏览的队伍跳过
+     * 跳过后不满一页时从索引中该页之后继续取，最多补取 HYDRATE_REFILLS 次，下一页游标随之后移
+     *
+     * @param idPage 一页队伍 id
+     * @return 一页队伍信息
+     */
+    private KeysetPage<TeamUserVO> hydrate(KeysetPage<Long> idPage) {
+        long size = idPage.getSize();
+        List<Team> teams = new ArrayList<>((int) size);
+        List<Long> staleIdList = new ArrayList<>();
+        collectBrowsable(idPage.getRecords(), teams, staleIdList);
+        String nextCursor = idPage.getNextCursor();
+        for (int i = 0; i < HYDRATE_REFILLS && teams.size() < size && nextCursor != null; i++) {
+            PageParams refillParams = new PageParams(1L, size - teams.size());
+            refillParams.setCursor(nextCursor);
+            refillParams.setCount(false);
+            KeysetPage<Long> refill = activeTeamIndex.page(refillParams);
+            if (refill == null) {
+                break;
+            }
+            collectBrowsable(refill.getRecords(), teams, staleIdList);
+            nextCursor = refill.getNextCursor();
+        }
+
+        // 删除时未同步到索引的队伍，读到后移除；作为下一页游标的队伍暂时保留，下一页才能按游标定位
+        staleIdList.remove(PageCursor.decode(nextCursor));
+        activeTeamIndex.remove(staleIdList);
+
+        KeysetPage<TeamUserVO> page = new KeysetPage<>(idPage.getCurrent(), size,
+                idPage.getTotal(), idPage.searchCount());
+        page.setRecords(getTeamUserVOs(teams));
+        page.setNextCursor(nextCursor);
+        return page;
+    }
+
+    /**
+     * 批量读取队伍，可浏览的按原顺序加入 teams，已删除的加入 staleIdList
+     *
+     * @param teamIdList  队伍 id
+     * @param teams       可浏览的队伍
+     * @param staleIdList 已删除的队伍 id
+     */
+    private void collectBrowsable(List<Long> teamIdList, List<Team> teams, List<Long> staleIdList) {
+        Map<Long, Team> teamMap = teamIdList.isEmpty() ? Map.of() : listByIds(teamIdList).stream()
+                .collect(Collectors.toMap(Team::getId, Function.identity()));
+
+        for (Long teamId : teamIdList) {
+            Team team = teamMap.get(teamId);
+            if (team == null) {
+                staleIdList.add(teamId);
+            } else if (ActiveTeamIndex.isBrowsable(team)) {
+                teams.add(team);
+            }
+        }
     }
 
     @Override
     public void joinTeam(Long teamId, String password, HttpServletRequest request) {
-        // 加锁，防止多次并发执行，造成重复脏数据
-        // 防止多个用户同时加入同一队伍造成超员，锁 teamId
-        // 防止同一用户多次加入同一队伍，锁 userId
-        // 防止同一用户同时加入多个队伍，锁 userId
+        // 不加锁，并发加入由 Redis 脚本原子地预占名额：
+        // 同一队伍的多个用户不会超员，同一用户不会重复加入或超过加入上限
+        // Redis 不可用时由数据库兜底：人数、已加入队伍数以条件更新占用，重复加入由 team_user 的唯一约束拒绝
 
         // 查询队伍是否存在
         Team team = getTeamIfExist(teamId);
+        LoginUserVO curUser = userService.getCurrentLoginUser(request);
 
-        // 获取锁
-        // 锁 teamId
-        RLock teamIdlock = redissonClient.getLock(String.format("user-center:team:teamId-%d", teamId));
-        // 锁 userId
-        RLock userIdLock = null;
-        try {
-            // 最多抢 teamId 锁 10 次
-            for (int i = 0; i < 10; i++) {
-                if (teamIdlock.tryLock(0, 0, TimeUnit.MINUTES)) {
-                    break;
-                }
-                if (i == 9) {
-                    throw new BusinessException(ResponseCode.OTHER, "加入队伍失败");
-                }
-            }
-
-            // 锁 userId
-            LoginUserVO curUser = userService.getCurrentLoginUser(request);
-            userIdLock = redissonClient.getLock(String.format("user-center:team:userId-%d", curUser.getId()));
+        // 队伍是否再有效期内
+        if (team.getExpireTime().before(new Date())) {
+            throw new BusinessException(ResponseCode.PARAMS_ERROR, "组队有效期已过");
+        }
 
-            if (!userIdLock.tryLock(0, 0, TimeUnit.MINUTES)) {
-                throw new BusinessException(ResponseCode.OTHER, "操作过于频繁");
-            }
+        // 队伍是否满员
+        if (isTeamFull(team)) {
+            throw new BusinessException(ResponseCode.PARAMS_ERROR, "队伍已满员");
+        }
 
-            // 查询是否已加入
-            List<TeamUser> members =
-                    teamUserService.list(new QueryWrapper<TeamUser>().eq("team_id", teamId));
-            for (TeamUser member : members) {
-                if (member.getUserId().equals(curUser.getId())) {
-                    throw new BusinessException(ResponseCode.PARAMS_ERROR, "已在队伍中");
-                }
+        // 是否为加密队伍
+        TeamStatus teamStatus = TeamStatus.getEnumByValue(team.getStatus());
+        if (TeamStatus.SECRET.equals(teamStatus)) {
+            if (StringUtils.isBlank(password)) {
+                throw new BusinessException(ResponseCode.PARAMS_ERROR, "密码错误");
             }
-
-            // 队伍是否再有效期内
-            if (team.getExpireTime().before(new Date())) {
-                throw new BusinessException(ResponseCode.PARAMS_ERROR, "组队有效期已过");
+            String encryptPassword = Tools.encrypString(password);
+            if (!encryptPassword.equals(team.getPassword())) {
+                throw new BusinessException(ResponseCode.PARAMS_ERROR, "密码错误");
             }
+        } else if (TeamStatus.PRIVATE.equals(teamStatus)) {
+            throw new BusinessException(ResponseCode.PARAMS_ERROR, "无法加入私密队伍");
+        }
 
-            // 队伍是否满员
-            if (isTeamFull(team, members)) {
-                throw new BusinessException(ResponseCode.PARAMS_ERROR, "队伍已满员");
+        // 预占名额，之后的步骤失败时事务回滚，名额随之释放
+        switch (teamSeats.reserve(team, curUser.getId())) {
+            case DUPLICATE -> throw new BusinessException(ResponseCode.PARAMS_ERROR, "已在队伍中");
+            case FULL -> throw new BusinessException(ResponseCode.PARAMS_ERROR, "队伍已满员");
+            case LIMIT_EXCEEDED -> throw new BusinessException(ResponseCode.PARAMS_ERROR,
+                    String.format("最多加入 %d 个队伍", teamConfig.getMaxJoinedTeams()));
+            case UNAVAILABLE -> checkJoinable(teamId, curUser.getId());
+            default -> {
             }
+        }
 
-            // 是否为加密队伍
-            TeamStatus teamStatus = TeamStatus.getEnumByValue(team.getStatus());
-            if (TeamStatus.SECRET.equals(teamStatus)) {
-                if (StringUtils.isBlank(password)) {
-                    throw new BusinessException(ResponseCode.PARAMS_ERROR, "密码错误");
-                }
-                String encryptPassword = Tools.encrypString(password);
-                if (!encryptPassword.equals(team.getPassword())) {
-                    throw new BusinessException(ResponseCode.PARAMS_ERROR, "密码错误");
-                }
-            } else if (TeamStatus.PRIVATE.equals(teamStatus)) {
-                throw new BusinessException(ResponseCode.PARAMS_ERROR, "无法加入私密队伍");
-            }
+        // 数据库中的人数同样以条件更新占用名额，Redis 中的名额丢失时也不会超员
+        if (baseMapper.increaseMemberCount(teamId) == 0) {
+            throw new BusinessException(ResponseCode.PARAMS_ERROR, "队伍已满员");
+        }
 
-            // 在队伍~用户关系表添加字段
-            TeamUser teamUser = new TeamUser();
-            teamUser.setTeamId(teamId);
-            teamUser.setUserId(curUser.getId());
+        // 在队伍~用户关系表添加字段
+        TeamUser teamUser = new TeamUser();
+        teamUser.setTeamId(teamId);
+        teamUser.setUserId(curUser.getId());
+        try {
             if (!teamUserService.save(teamUser)) {
                 throw new BusinessException(ResponseCode.SYSTEM_ERROR, "加入队伍失败");
             }
+        } catch (DuplicateKeyException e) {
+            // 并发的重复加入在 checkJoinable 之后插入，由唯一约束拒绝，事务回滚人数的增加
+            throw new BusinessException(ResponseCode.PARAMS_ERROR, "已在队伍中");
+        }
+        // Redis 不可用时 checkJoinable 只做了预检，数据库同样以条件更新判断加入上限
+        if (!userService.increaseJoinedTeamCount(curUser.getId(), teamConfig.getMaxJoinedTeams())) {
+            throw new BusinessException(ResponseCode.PARAMS_ERROR,
+                    String.format("最多加入 %d 个队伍", teamConfig.getMaxJoinedTeams()));
+        }
+    }
 
-        } catch (InterruptedException e) {
-            throw new BusinessException(ResponseCode.OTHER, "加入队伍失败");
-        } finally {
-            if (teamIdlock.isHeldByCurrentThread()) {
-                teamIdlock.unlock();
-            }
-            if (userIdLock != null && userIdLock.isHeldByCurrentThread()) {
-                userIdLock.unlock();
-            }
+    /**
+     * Redis 不可用时由数据库判断是否已加入、是否超过加入上限
+     *
+     * @param teamId 队伍 id
+     * @param userId 用户 id
+     */
+    private void checkJoinable(Long teamId, Long userId) {
+        LambdaQueryWrapper<TeamUser> joinedQueryWrapper = new LambdaQueryWrapper<>();
+        joinedQueryWrapper.eq(TeamUser::getTeamId, teamId);
+        joinedQueryWrapper.eq(TeamUser::getUserId, userId);
+        if (teamUserService.count(joinedQueryWrapper) > 0) {
+            throw new BusinessException(ResponseCode.PARAMS_ERROR, "已在队伍中");
         }
 
+        Integer maxJoinedTeams = teamConfig.getMaxJoinedTeams();
+        User user = userService.getById(userId);
+        if (maxJoinedTeams > 0 && user != null && user.getJoinedTeamCount() >= maxJoinedTeams) {
+            throw new BusinessException(ResponseCode.PARAMS_ERROR, String.format("最多加入 %d 个队伍", maxJoinedTeams));
+        }
     }
 
     @Override
     public void exitTeam(Long teamId, HttpServletRequest request) {
-        RLock userIdLock = redissonClient.getLock(String.format("user-center:team:userId-%d", teamId));
-        try {
-            if (!userIdLock.tryLock(0, 0, TimeUnit.MINUTES)) {
-                throw new BusinessException(ResponseCode.OTHER, "操作过于频繁");
-            }
-
+        Long currentUserId = userService.getCurrentLoginUser(request).getId();
+        try (LockHandle ignored = lockOrThrow(userLockKey(currentUserId), Duration.ZERO)) {
             // 判断队伍是否存在
             Team team = getTeamIfExist(teamId);
 
             // 判断是否为队长
-            Long currentUserId = userService.getCurrentLoginUser(request).getId();
             if (Objects.equals(team.getUserId(), currentUserId)) {
                 throw new BusinessException(ResponseCode.PARAMS_ERROR, "队长不可退出队伍");
             }
 
-            LambdaQueryWrapper<TeamUser> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(TeamUser::getUserId, currentUserId);
-            queryWrapper.eq(TeamUser::getTeamId, teamId);
-
-            if (!teamUserService.remove(queryWrapper)) {
+            if (!removeMember(teamId, currentUserId)) {
                 throw new BusinessException(ResponseCode.PARAMS_ERROR, "退出队伍失败");
             }
         } catch (InterruptedException e) {
             throw new BusinessException(ResponseCode.OTHER, "退出队伍失败");
-        } finally {
-            if (userIdLock.isHeldByCurrentThread()) {
-                userIdLock.unlock();
-            }
         }
     }
 
     @Override
     public void transferTeam(Long teamId, Long userId, HttpServletRequest request) {
-        Team team = getTeamIfExist(teamId);
-
         Long currentUserId = userService.getCurrentLoginUser(request).getId();
-        if (!isCaptain(team, currentUserId)) {
-            throw new BusinessException(ResponseCode.NO_AUTH, "不是队长");
-        }
         if (userService.getById(userId) == null) {
             throw new BusinessException(ResponseCode.PARAMS_ERROR, "用户不存在");
         }
-        LambdaUpdateChainWrapper<Team> teamLambdaUpdateChainWrapper
-                = new LambdaUpdateChainWrapper<>(Team.class);
-        teamLambdaUpdateChainWrapper.set(Team::getUserId, userId);
 
-        if (!update(teamLambdaUpdateChainWrapper)) {
-            throw new BusinessException(ResponseCode.SYSTEM_ERROR, "转让队伍失败");
+        for (int i = 0; i < teamConfig.getUpdateRetries(); i++) {
+            Team team = getTeamIfExist(teamId);
+            if (!isCaptain(team, currentUserId)) {
+                throw new BusinessException(ResponseCode.NO_AUTH, "不是队长");
+            }
+
+            // 只修改队长，版本号不一致（队伍已被修改或已转让）时不更新
+            Team updateTeam = new Team();
+            updateTeam.setId(teamId);
+            updateTeam.setUserId(userId);
+            updateTeam.setVersion(team.getVersion());
+            if (updateById(updateTeam)) {
+                return;
+            }
         }
+        throw new BusinessException(ResponseCode.OTHER, "转让队伍失败，请重试");
     }
 
     @Override
@@ -390,12 +505,7 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         teamLambdaQueryWrapper.eq(Team::getUserId, currentUserId);
         List<Team> teamList = list(teamLambdaQueryWrapper);
         // 获取队伍信息
-        List<TeamUserVO> teamUserVOList = new ArrayList<>();
-        for (Team team : teamList) {
-            TeamUserVO teamUserVO = getTeamUserVOById(team.getId());
-            teamUserVOList.add(teamUserVO);
-        }
-        return teamUserVOList;
+        return getTeamUserVOs(teamList);
     }
 
     @Override
@@ -404,23 +514,25 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         // 获取用户加入的队伍
         LambdaQueryWrapper<TeamUser> teamUserLambdaQueryWrapper = new LambdaQueryWrapper<>();
         teamUserLambdaQueryWrapper.eq(TeamUser::getUserId, currentUserId);
-        List<TeamUser> teamList = teamUserService.list(teamUserLambdaQueryWrapper);
-        // 获取队伍信息
-        List<TeamUserVO> teamUserVOList = new ArrayList<>();
-        for (TeamUser teamUser : teamList) {
-            TeamUserVO teamUserVO = getTeamUserVOById(teamUser.getTeamId());
-            teamUserVOList.add(teamUserVO);
+        List<Long> teamIdList = teamUserService.list(teamUserLambdaQueryWrapper)
+                .stream().map(TeamUser::getTeamId).toList();
+        if (teamIdList.isEmpty()) {
+            return new ArrayList<>();
         }
-        teamUserVOList = teamUserVOList.stream().filter(teamUserVO -> !teamUserVO.getUserId().equals(currentUserId)).toList();
-        return teamUserVOList;
+        // 一次查出所有队伍，排除自己是队长的队伍
+        List<Team> teamList = listByIds(teamIdList).stream()
+                .filter(team -> !team.getUserId().equals(currentUserId))
+                .sorted(Comparator.comparing(Team::getId))
+                .toList();
+        // 获取队伍信息
+        return getTeamUserVOs(teamList);
     }
 
     /**
-     * @param team    队伍对象
-     * @param members 队伍~成员关系对象列表
+     * @param team 队伍对象
      */
-    private boolean isTeamFull(Team team, List<TeamUser> members) {
-        return team.getMaxNumber() == members.size();
+    private boolean isTeamFull(Team team) {
+        return team.getMemberCount() >= team.getMaxNumber();
     }
 
     @Override
@@ -451,6 +563,84 @@ public class TeamServiceImpl extends ServiceImpl<TeamMapper, Team>
         return userService.listUserVO(userQueryWrapper);
     }
 
+    @Override
+    public boolean removeMember(Long teamId, Long userId) {
+        LambdaQueryWrapper<TeamUser> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(TeamUser::getUserId, userId);
+        queryWrapper.eq(TeamUser::getTeamId, teamId);
+        if (!teamUserService.remove(queryWrapper)) {
+            return false;
+        }
+        baseMapper.decreaseMemberCount(teamId);
+        userService.addJoinedTeamCount(List.of(userId), -1);
+        teamSeats.releaseAfterCommit(teamId, userId);
+        return true;
+    }
+
+    @Override
+    public boolean removeAllMembers(Long teamId) {
+        LambdaQueryWrapper<TeamUser> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.select(TeamUser::getUserId);
+        queryWrapper.eq(TeamUser::getTeamId, teamId);
+        // 加入队伍不再持有队伍锁，当前读才能看到刚提交的成员，各成员的已加入队伍数才不会漏减
+        queryWrapper.last("for update");
+        List<Long> memberIdList = teamUserService.list(queryWrapper)
+                .stream().map(TeamUser::getUserId).toList();
+        if (memberIdList.isEmpty()) {
+            return false;
+        }
+
+        LambdaQueryWrapper<TeamUser> removeWrapper = new LambdaQueryWrapper<>();
+        removeWrapper.eq(TeamUser::getTeamId, teamId);
+        if (!teamUserService.remove(removeWrapper)) {
+            return false;
+        }
+        userService.addJoinedTeamCount(memberIdList, -1);
+        teamSeats.clearAfterCommit(teamId, memberIdList);
+        return true;
+    }
+
+    @Override
+    public List<Long> expireTeams(Collection<Long> teamIds) {
+        Date now = new Date();
+        List<Long> expiredIdList = new ArrayList<>(teamIds.size());
+        for (Long teamId : teamIds) {
+            // 按过期时间条件删除，与延后过期时间的修改、其它节点的清理并发时只有一方生效
+            LambdaQueryWrapper<Team> queryWrapper = new LambdaQueryWrapper<>();
+            queryWrapper.eq(Team::getId, teamId);
+            queryWrapper.le(Team::getExpireTime, now);
+            if (remove(queryWrapper)) {
+                removeAllMembers(teamId);
+                expiredIdList.add(teamId);
+            }
+        }
+        // remove 自身在事务提交后才访问 Redis，不能再包一层 afterCommit：提交阶段注册的回调不会执行
+        activeTeamIndex.remove(expiredIdList);
+        return expiredIdList;
+    }
+
+
+    /**
+     * 加锁，未获得时提示操作过于频繁
+     *
+     * @param key  锁的键
+     * @param wait 最长等待时间
+     */
+    private LockHandle lockOrThrow(String key, Duration wait) throws InterruptedException {
+        LockHandle lock = lockManager.tryLock(key, wait);
+        if (lock == null) {
+            throw new BusinessException(ResponseCode.OTHER, "操作过于频繁");
+        }
+        return lock;
+    }
+
+    private static String teamLockKey(Long teamId) {
+        return String.format("user-center:team:teamId-%d", teamId);
+    }
+
+    private static String userLockKey(Long userId) {
+        return String.format("user-center:team:userId-%d", userId);
+    }
 
     /**
      * 查询某用户是否为指定队伍的队长
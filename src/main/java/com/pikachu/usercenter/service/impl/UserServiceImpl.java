@@ -3,9 +3,20 @@ package com.pikachu.usercenter.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.pikachu.usercenter.cache.TwoTierCache;
+import com.pikachu.usercenter.cache.UserEntityCache;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.common.PageCursor;
+import com.pikachu.usercenter.common.PageParams;
 import com.pikachu.usercenter.exception.BusinessException;
+import com.pikachu.usercenter.index.NicknameIndex;
+import com.pikachu.usercenter.index.TagDictionary;
+import com.pikachu.usercenter.index.TagInvertedIndex;
+import com.pikachu.usercenter.index.TopKSelector;
+import com.pikachu.usercenter.index.UserMatcher;
+import com.pikachu.usercenter.index.UserTagIndex;
+import com.pikachu.usercenter.job.MatchPreCache;
 import com.pikachu.usercenter.mapper.UserMapper;
 import com.pikachu.usercenter.model.dto.request.user.UserUpdateRequest;
 import com.pikachu.usercenter.model.entity.User;
@@ -13,7 +24,7 @@ import com.pikachu.usercenter.model.enums.ResponseCode;
 import com.pikachu.usercenter.model.vo.LoginUserVO;
 import com.pikachu.usercenter.model.vo.UserVO;
 import com.pikachu.usercenter.service.UserService;
-import com.pikachu.usercenter.utils.AlgorithmUtils;
+import com.pikachu.usercenter.utils.PageUtils;
 import com.pikachu.usercenter.utils.Tools;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,18 +33,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
 import org.springframework.stereotype.Service;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 import static com.pikachu.usercenter.constant.UserConstant.USER_LOGIN_STATE;
+import static com.pikachu.usercenter.utils.TransactionUtils.afterCommit;
 
 /**
  * @author 28944
@@ -46,7 +61,36 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         implements UserService {
 
     @Resource
-    private RedisTemplate<String, Page<User>> redisTemplate;
+    private TwoTierCache<KeysetPage<Long>> userSearchCache;
+
+    @Resource
+    private UserEntityCache userEntityCache;
+
+    @Resource
+    private TwoTierCache<Long> countCache;
+
+    @Resource
+    private UserTagIndex userTagIndex;
+
+    @Resource
+    private TagDictionary tagDictionary;
+
+    @Resource
+    private UserMatcher userMatcher;
+
+    @Resource
+    private TagInvertedIndex tagInvertedIndex;
+
+    @Resource
+    private MatchPreCache matchPreCache;
+
+    @Resource
+    private NicknameIndex nicknameIndex;
+
+    /**
+     * 昵称候选用户每批校验的个数
+     */
+    private static final int NICKNAME_VERIFY_BATCH = 1000;
 
     @Override
     public Long userRegister(String account, String password) {
@@ -67,6 +111,7 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         user.setPassword(encryptPassword);
 
         save(user);
+        nicknameIndex.update(user.getId(), user.getNickname());
         return user.getId();
     }
 
@@ -95,6 +140,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         HttpSession session = request.getSession();
         session.setAttribute(USER_LOGIN_STATE, loginUserVO);
 
+        // 5. 异步刷新匹配结果缓存
+        matchPreCache.refresh(user.getId(), user.getTags());
+
         return loginUserVO;
 
     }
@@ -110,64 +158,80 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
     }
 
     @Override
-    public IPage<UserVO> searchUsers(Map<String, Object> conditions, Long current, Long pageSize) {
-        Page<User> userPage;
+    public IPage<UserVO> searchUsers(Map<String, Object> conditions, PageParams pageParams) {
+        KeysetPage<Long> userIdPage;
         QueryWrapper<User> userQueryWrapper = new QueryWrapper<>();
-        String nickname;
-        List<String> searchedTagList;
-
-        // 从 Redis 缓存读数据
-        // 若缓存中存在数据，直接返回
-        String redisKey = String.format("user-center:user:search-%d-%d", current, pageSize);
-        ValueOperations<String, Page<User>> opsForValue = redisTemplate.opsForValue();
-        if (!StringUtils.isBlank(nickname = (String) conditions.get("nickname"))) {
+        String nickname = (String) conditions.get("nickname");
+        List<String> searchedTagList = (List<String>) conditions.get("tags");
+
+        // 依次从本地缓存、Redis 缓存读本页用户 id，都不存在时查询
+        // 只有被多次查询的键才会写入缓存
+        // 按页码分页与按游标分页使用不同的键，不返回总数的结果也使用不同的键
+        Long lastId = PageCursor.decode(pageParams.getCursor());
+        String redisKey = lastId == null
+                ? String.format("user-center:user:search-ids-%d-%d", pageParams.getCurrent(), pageParams.getSize())
+                : String.format("user-center:user:search-ids-after-%d-%d", lastId, pageParams.getSize());
+        if (Boolean.FALSE.equals(pageParams.getCount())) {
+            redisKey += "-nocount";
+        }
+        if (!StringUtils.isBlank(nickname)) {
             redisKey = String.format("%s:nickname-%s", redisKey, nickname);
-            userPage = opsForValue.get(redisKey);
-            if (userPage == null) {
-                userPage = searchUserByNickname(nickname, current, pageSize, userQueryWrapper);
-            }
+            userIdPage = userSearchCache.get(redisKey,
+                    () -> searchUserByNickname(nickname, pageParams, lastId, userQueryWrapper));
 
-        } else if (!CollectionUtils.isEmpty(searchedTagList = (List<String>) conditions.get("tags"))) {
+        } else if (!CollectionUtils.isEmpty(searchedTagList)) {
             redisKey = String.format("%s:tags-%s", redisKey, searchedTagList.stream().sorted().toList());
-            userPage = opsForValue.get(redisKey);
-            if (userPage == null) {
-                userPage = searchUserByTags(searchedTagList, current, pageSize, userQueryWrapper);
-            }
+            userIdPage = userSearchCache.get(redisKey,
+                    () -> searchUserByTags(searchedTagList, pageParams, lastId, userQueryWrapper));
 
         } else {
-            userPage = opsForValue.get(redisKey);
-            if (userPage == null) {
-                userPage = page(new Page<>(current, pageSize), userQueryWrapper);
-            }
+            userIdPage = userSearchCache.get(redisKey, () -> pageUserIds(userQueryWrapper, pageParams));
 
         }
-        // 写缓存
-        try {
-            opsForValue.set(redisKey, userPage, 1, TimeUnit.DAYS);
-        } catch (Exception e) {
-            log.error("redis set key error", e);
-        }
 
-        // if (userPage == null)
-        //     throw new BusinessException(ResponseCode.SYSTEM_ERROR);
-        return userPage.convert(user -> {
+        // 按 id 从用户缓存批量读取本页用户，缓存中的页对象可能被多个请求共享，转换到新的页对象
+        Map<Long, User> userMap = userEntityCache.getAll(userIdPage.getRecords());
+        KeysetPage<UserVO> userVOPage = userIdPage.map(userId -> {
+            User user = userMap.get(userId);
+            if (user == null) {
+                return null;
+            }
             try {
                 return UserVO.fromUser(user);
             } catch (InvocationTargetException | IllegalAccessException e) {
                 throw new RuntimeException(e);
             }
         });
+        // 分页结果缓存后被删除的用户
+        userVOPage.getRecords().removeIf(Objects::isNull);
+        return userVOPage;
     }
 
-    private Page<User> searchUserByTags(List<String> searchedTagList,
-                                        Long current,
-                                        Long pageSize,
+    /**
+     * 按条件分页查询用户 id，只查询 id 列
+     */
+    private KeysetPage<Long> pageUserIds(QueryWrapper<User> queryWrapper, PageParams pageParams) {
+        queryWrapper.select("id");
+        return PageUtils.page(this, queryWrapper, pageParams, User::getId, countCache).map(User::getId);
+    }
+
+    private KeysetPage<Long> searchUserByTags(List<String> searchedTagList,
+                                        PageParams pageParams,
+                                        Long lastId,
                                         QueryWrapper<User> queryWrapper) {
+        // 方法三、使用内存中的标签倒排索引，多个标签的用户位图求交集后直接分页
+        if (tagInvertedIndex.isReady()) {
+            RoaringBitmap userIdBitmap = tagInvertedIndex.search(searchedTagList);
+            if (userIdBitmap != null) {
+                return pageByBitmap(userIdBitmap, pageParams, lastId);
+            }
+        }
+
         // 方法一、直接在 SQL 筛选
         for (String tagName : searchedTagList) {
             queryWrapper.like("tags", tagName);
         }
-        Page<User> userPage = page(new Page<>(current, pageSize), queryWrapper);
+        KeysetPage<Long> userIdPage = pageUserIds(queryWrapper, pageParams);
 
         // 方法二、先查询出用户，保存在内存中进行查询
         // List<User> userList = list(queryWrapper);
@@ -188,15 +252,137 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         // Page<User> userPage = new Page<>(current, pageSize, userList.size());
         // userPage.setRecords(new ArrayList<>(userList.subList(fromIndex, toIndex)));
 
-        return userPage;
+        return userIdPage;
     }
 
-    private Page<User> searchUserByNickname(String nickname,
-                                            Long current,
-                                            Long pageSize,
+    private KeysetPage<Long> searchUserByNickname(String nickname,
+                                            PageParams pageParams,
+                                            Long lastId,
                                             QueryWrapper<User> queryWrapper) {
+        // 方法二、使用内存中的昵称 n-gram 倒排索引得到候选用户，在数据库中按 id 校验后直接分页
+        if (nicknameIndex.isReady()) {
+            RoaringBitmap candidateBitmap = nicknameIndex.candidates(nickname);
+            if (candidateBitmap != null && candidateBitmap.getCardinality() <= NicknameIndex.VERIFY_LIMIT) {
+                return pageByBitmap(verifyNickname(candidateBitmap, nickname), pageParams, lastId);
+            }
+            if (candidateBitmap != null) {
+                KeysetPage<Long> userIdPage = pageByCandidates(candidateBitmap, nickname, pageParams, lastId);
+                if (userIdPage != null) {
+                    return userIdPage;
+                }
+            }
+        }
+
+        // 方法一、直接在 SQL 筛选
         queryWrapper.like("nickname", nickname);
-        return page(new Page<>(current, pageSize), queryWrapper);
+        return pageUserIds(queryWrapper, pageParams);
+    }
+
+    /**
+     * 在数据库中校验候选用户的昵称是否包含关键字
+     * 按主键分批查询，每批只回表候选用户
+     */
+    private RoaringBitmap verifyNickname(RoaringBitmap candidateBitmap, String nickname) {
+        RoaringBitmap userIdBitmap = new RoaringBitmap();
+        List<Long> batch = new ArrayList<>(NICKNAME_VERIFY_BATCH);
+        for (int userId : candidateBitmap) {
+            batch.add((long) userId);
+            if (batch.size() == NICKNAME_VERIFY_BATCH) {
+                verifyNicknameBatch(batch, nickname, userIdBitmap);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            verifyNicknameBatch(batch, nickname, userIdBitmap);
+        }
+        return userIdBitmap;
+    }
+
+    /**
+     * 候选过多（如关键字为一个常用字）时不全部校验，按 id 顺序分批校验，凑够一页即停止，不统计总数
+     * 最多校验 VERIFY_LIMIT 个候选，仍未凑够一页时：从第一页或游标开始的查询返回已凑到的结果，
+     * 下一页游标为最后校验的候选，从其之后继续；按页码跳到后面的页时返回 null，由调用方在数据库中查询
+     */
+    private KeysetPage<Long> pageByCandidates(RoaringBitmap candidateBitmap, String nickname,
+                                              PageParams pageParams, Long lastId) {
+        long pageSize = pageParams.getSize();
+        KeysetPage<Long> userPage = lastId == null
+                ? new KeysetPage<>(pageParams.getCurrent(), pageSize, 0, false)
+                : new KeysetPage<>(1, pageSize, 0, false);
+        long offset = userPage.offset();
+        // 多取一个判断是否有下一页
+        long need = offset + pageSize + 1;
+
+        PeekableIntIterator iterator = candidateBitmap.getIntIterator();
+        if (lastId != null) {
+            iterator.advanceIfNeeded((int) (lastId + 1));
+        }
+        List<Long> matchedIdList = new ArrayList<>();
+        List<Long> batch = new ArrayList<>(NICKNAME_VERIFY_BATCH);
+        int verified = 0;
+        long lastVerifiedId = -1;
+        while (iterator.hasNext() && matchedIdList.size() < need && verified < NicknameIndex.VERIFY_LIMIT) {
+            batch.clear();
+            while (iterator.hasNext() && batch.size() < NICKNAME_VERIFY_BATCH) {
+                batch.add((long) iterator.next());
+            }
+            verified += batch.size();
+            lastVerifiedId = batch.get(batch.size() - 1);
+            RoaringBitmap userIdBitmap = new RoaringBitmap();
+            verifyNicknameBatch(batch, nickname, userIdBitmap);
+            userIdBitmap.forEach((int userId) -> matchedIdList.add((long) userId));
+        }
+
+        if (matchedIdList.size() >= need) {
+            List<Long> userIdList = new ArrayList<>(matchedIdList.subList((int) offset, (int) (offset + pageSize)));
+            userPage.setRecords(userIdList);
+            userPage.setNextCursor(PageCursor.encode(userIdList.get(userIdList.size() - 1)));
+        } else if (!iterator.hasNext()) {
+            // 候选已全部校验
+            userPage.setRecords(offset < matchedIdList.size()
+                    ? new ArrayList<>(matchedIdList.subList((int) offset, matchedIdList.size()))
+                    : new ArrayList<>());
+        } else if (offset == 0) {
+            userPage.setRecords(matchedIdList);
+            userPage.setNextCursor(PageCursor.encode(lastVerifiedId));
+        } else {
+            return null;
+        }
+        return userPage;
+    }
+
+    private void verifyNicknameBatch(List<Long> batch, String nickname, RoaringBitmap userIdBitmap) {
+        LambdaQueryWrapper<User> qr = new LambdaQueryWrapper<>();
+        qr.select(User::getId);
+        qr.in(User::getId, batch);
+        qr.like(User::getNickname, nickname);
+        for (User user : list(qr)) {
+            userIdBitmap.add(user.getId().intValue());
+        }
+    }
+
+    /**
+     * 在用户 id 位图上按页码或游标分页
+     */
+    private KeysetPage<Long> pageByBitmap(RoaringBitmap userIdBitmap, PageParams pageParams, Long lastId) {
+        Long pageSize = pageParams.getSize();
+        KeysetPage<Long> userPage;
+        List<Long> userIdList;
+        if (lastId == null) {
+            userPage = new KeysetPage<>(pageParams.getCurrent(), pageSize, userIdBitmap.getCardinality(), true);
+            userIdList = TagInvertedIndex.page(userIdBitmap, userPage.offset(), pageSize);
+        } else {
+            userPage = new KeysetPage<>(1, pageSize, userIdBitmap.getCardinality(), false);
+            userIdList = TagInvertedIndex.after(userIdBitmap, lastId, pageSize);
+        }
+        if (!userIdList.isEmpty()) {
+            long pageLastId = userIdList.get(userIdList.size() - 1);
+            if (userIdBitmap.last() > pageLastId) {
+                userPage.setNextCursor(PageCursor.encode(pageLastId));
+            }
+            userPage.setRecords(userIdList);
+        }
+        return userPage;
     }
 
     @Override
@@ -222,6 +408,12 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         }).toList();
     }
 
+    @Override
+    public void streamUsers(LambdaQueryWrapper<User> queryWrapper, Consumer<User> consumer) {
+        queryWrapper.eq(User::getIsDelete, false);
+        baseMapper.streamList(queryWrapper, context -> consumer.accept(context.getResultObject()));
+    }
+
     @Override
     public void updateUser(UserUpdateRequest userUpdateRequest, HttpServletRequest request) {
         HttpSession session = request.getSession();
@@ -233,7 +425,21 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
             if (!updateById(user)) {
                 throw new BusinessException(ResponseCode.PARAMS_ERROR, "修改用户信息失败");
             }
+            Long userId = user.getId();
+            afterCommit(() -> userEntityCache.invalidate(userId));
             user = getById(user.getId());
+            // 索引和推荐缓存在提交后更新，事务回滚时不会留下未提交的标签、昵称
+            List<String> tags = user.getTags();
+            String nickname = user.getNickname();
+            if (userUpdateRequest.getTags() != null) {
+                afterCommit(() -> {
+                    userTagIndex.update(userId, tags);
+                    matchPreCache.refresh(userId, tags);
+                });
+            }
+            if (userUpdateRequest.getNickname() != null) {
+                afterCommit(() -> nicknameIndex.update(userId, nickname));
+            }
             currentUser = new LoginUserVO();
             BeanUtils.copyProperties(currentUser, user);
         } catch (IllegalAccessException | InvocationTargetException e) {
@@ -242,6 +448,24 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
         session.setAttribute(USER_LOGIN_STATE, currentUser);
     }
 
+    @Override
+    public void addJoinedTeamCount(Collection<Long> userIds, int delta) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        baseMapper.addJoinedTeamCount(userIds, delta);
+        afterCommit(() -> userEntityCache.invalidateAll(userIds));
+    }
+
+    @Override
+    public boolean increaseJoinedTeamCount(Long userId, int limit) {
+        if (baseMapper.increaseJoinedTeamCount(userId, limit) == 0) {
+            return false;
+        }
+        afterCommit(() -> userEntityCache.invalidate(userId));
+        return true;
+    }
+
     @Override
     public List<UserVO> matchUsers(Integer num, HttpServletRequest request) {
         /**
@@ -250,46 +474,73 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User>
          * 缺点：效率极低
          */
 
-        // 方法二
         LoginUserVO curUser = getCurrentLoginUser(request);
-        LambdaQueryWrapper<User> qr = new LambdaQueryWrapper<>();
-        // 只查询用户id和标签字段
-        qr.select(User::getId, User::getTags);
-        // 筛除无标签用户
-        qr.isNotNull(User::getTags);
-        qr.ne(User::getTags, "");
-        // 筛除当前登录用户自己
-        qr.ne(User::getId, curUser.getId());
-
-        List<User> userList = list(qr);
         List<String> curUserTags = curUser.getTags();
 
-        // 用户id-编辑距离List
-        List<Map.Entry<Long, Integer>> userIdDistanceList = new ArrayList<>();
-        for (User user : userList) {
-            List<String> tags = user.getTags();
-
-            // 筛除无标签用户及用户自己
-            // if (CollectionUtils.isEmpty(tags) || Objects.equals(curUser.getId(), user.getId())) {
-            //     continue;
-            // }
-
-            // 计算编辑距离
-            Integer distance = AlgorithmUtils.minDistance(curUserTags, tags);
-
-            userIdDistanceList.add(Map.entry(user.getId(), distance));
+        // 优先读取预计算的匹配结果
+        List<Long> userIdList = matchPreCache.get(curUser.getId(), num);
+        if (userIdList == null) {
+            userIdList = Arrays.stream(liveMatch(curUser, num).sortedIds()).boxed().toList();
+            matchPreCache.refresh(curUser.getId(), curUserTags);
         }
-        // 排序
-        List<Map.Entry<Long, Integer>> sortedList = userIdDistanceList.stream().sorted(Comparator.comparingInt(Map.Entry::getValue)).toList();
-        sortedList = sortedList.subList(0, Math.min(num, sortedList.size()));
 
-        List<Long> userIdList = sortedList.stream().map(Map.Entry::getKey).toList();
+        if (userIdList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> rankedIdList = userIdList;
         QueryWrapper<User> userQueryWrapper = new QueryWrapper<>();
-        userQueryWrapper.in("id", userIdList);
-        List<UserVO> userVOList = listUserVO(userQueryWrapper);
+        userQueryWrapper.in("id", rankedIdList);
+        // 按匹配度排序
+        List<UserVO> userVOList = listUserVO(userQueryWrapper).stream()
+                .sorted(Comparator.comparingInt(userVO -> rankedIdList.indexOf(userVO.getId())))
+                .toList();
         return userVOList;
     }
 
+    /**
+     * 实时计算匹配用户
+     *
+     * @param curUser 当前登录用户
+     * @param num     匹配出的用户个数
+     * @return Top-K 结果
+     */
+    private TopKSelector liveMatch(LoginUserVO curUser, Integer num) {
+        List<String> curUserTags = curUser.getTags();
+
+        // 保留距离最小的 num 个用户
+        TopKSelector topK;
+        if (userTagIndex.isReady()) {
+            // 方法三
+            // 使用内存中的标签位图索引计算相似度，不查询数据库
+            // 精确 / 近似匹配由 match-config.mode 配置
+            topK = userMatcher.match(curUser.getId(), userTagIndex.maskOf(curUserTags), num);
+        } else {
+            // 方法二
+            // 索引尚未构建完成时使用，与索引的精确匹配使用相同的位图距离，结果一致
+            LambdaQueryWrapper<User> qr = new LambdaQueryWrapper<>();
+            // 只查询用户id和标签字段
+            qr.select(User::getId, User::getTags);
+            // 筛除无标签用户
+            qr.isNotNull(User::getTags);
+            qr.ne(User::getTags, "");
+            // 筛除当前登录用户自己
+            qr.ne(User::getId, curUser.getId());
+
+            // 流式读取，不在内存中堆积全部用户
+            long selfMask = tagDictionary.maskOf(curUserTags);
+            TopKSelector selector = new TopKSelector(num);
+            streamUsers(qr, user -> {
+                long mask = tagDictionary.maskOf(user.getTags());
+                // 与索引相同，没有字典内标签的用户不参与匹配
+                if (mask != 0L) {
+                    selector.offer(user.getId(), UserTagIndex.distance(mask, selfMask));
+                }
+            });
+            topK = selector;
+        }
+        return topK;
+    }
+
 }
 
 
@@ -1,7 +1,8 @@
 package com.pikachu.usercenter.utils;
 
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 
 /**
  * 算法工具类
@@ -11,43 +12,99 @@ import java.util.Objects;
  */
 public class AlgorithmUtils {
 
+    /**
+     * 编辑距离计算使用的单行 DP 缓冲区，每个线程复用一份
+     */
+    private static final ThreadLocal<int[]> ROW_BUFFER = ThreadLocal.withInitial(() -> new int[32]);
+
     /**
      * 编辑距离算法
      * 原用法：计算两个字符串相似度
      * 由 word1 到达 word2 需要进行的最少增删草操作次数
      * <p>
      * 计算两个标签列表相似度
+     * 先将标签映射为整数 id，再调用 {@link #minDistance(int[], int[])}
      *
      * @param tagList1 标签列表1
      * @param tagList2 标签列表2
      * @return
      */
     public static int minDistance(List<String> tagList1, List<String> tagList2) {
-        int n = tagList1.size();
-        int m = tagList2.size();
+        Map<String, Integer> tagIdMap = new HashMap<>();
+        return minDistance(toIds(tagList1, tagIdMap), toIds(tagList2, tagIdMap));
+    }
+
+    /**
+     * 编辑距离算法（标签 id 版本）
+     *
+     * @param tags1 标签 id 列表1
+     * @param tags2 标签 id 列表2
+     * @return 编辑距离
+     */
+    public static int minDistance(int[] tags1, int[] tags2) {
+        return minDistance(tags1, tags2, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 带剪枝的编辑距离算法（标签 id 版本）
+     * 只使用一行 DP 数组，且该数组由线程复用，不在每次调用时分配矩阵
+     * <p>
+     * DP 每一行的最小值是最终距离的下界，一旦超过 bound 立即返回，
+     * 用于 Top-K 匹配时跳过不可能入选的候选（bound 取当前第 K 好的距离）
+     *
+     * @param tags1 标签 id 列表1
+     * @param tags2 标签 id 列表2
+     * @param bound 距离上界
+     * @return 编辑距离；若距离大于 bound，返回 bound + 1
+     */
+    public static int minDistance(int[] tags1, int[] tags2, int bound) {
+        int n = tags1.length;
+        int m = tags2.length;
+        boolean bounded = bound < Integer.MAX_VALUE;
+
+        // 长度差是编辑距离的下界
+        if (bounded && Math.abs(n - m) > bound)
+            return bound + 1;
 
         if (n * m == 0)
             return n + m;
 
-        int[][] d = new int[n + 1][m + 1];
-        for (int i = 0; i < n + 1; i++) {
-            d[i][0] = i;
+        int[] row = ROW_BUFFER.get();
+        if (row.length < m + 1) {
+            row = new int[Math.max(m + 1, row.length * 2)];
+            ROW_BUFFER.set(row);
         }
 
         for (int j = 0; j < m + 1; j++) {
-            d[0][j] = j;
+            row[j] = j;
         }
 
         for (int i = 1; i < n + 1; i++) {
+            // left_down 为 d[i - 1][j - 1]
+            int leftDown = row[0];
+            row[0] = i;
+            int rowMin = i;
             for (int j = 1; j < m + 1; j++) {
-                int left = d[i - 1][j] + 1;
-                int down = d[i][j - 1] + 1;
-                int left_down = d[i - 1][j - 1];
-                if (!Objects.equals(tagList1.get(i - 1), tagList2.get(j - 1)))
-                    left_down += 1;
-                d[i][j] = Math.min(left, Math.min(down, left_down));
+                int left = row[j] + 1;
+                int down = row[j - 1] + 1;
+                int replace = leftDown;
+                if (tags1[i - 1] != tags2[j - 1])
+                    replace += 1;
+                leftDown = row[j];
+                row[j] = Math.min(left, Math.min(down, replace));
+                rowMin = Math.min(rowMin, row[j]);
             }
+            if (bounded && rowMin > bound)
+                return bound + 1;
+        }
+        return bounded ? Math.min(row[m], bound + 1) : row[m];
+    }
+
+    private static int[] toIds(List<String> tagList, Map<String, Integer> tagIdMap) {
+        int[] ids = new int[tagList.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tagIdMap.computeIfAbsent(tagList.get(i), tag -> tagIdMap.size());
         }
-        return d[n][m];
+        return ids;
     }
 }
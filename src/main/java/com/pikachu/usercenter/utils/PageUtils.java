@@ -0,0 +1,127 @@
+package com.pikachu.usercenter.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.pikachu.usercenter.cache.TwoTierCache;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.common.PageCursor;
+import com.pikachu.usercenter.common.PageParams;
+import org.springframework.util.DigestUtils;
+
+import java.io.Serial;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 分页工具类
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class PageUtils {
+    private PageUtils() {
+    }
+
+    /**
+     * 按页码或游标分页查询，结果按 id 升序，不统计总数
+     *
+     * @see #page(IService, QueryWrapper, PageParams, Function, TwoTierCache)
+     */
+    public static <T> KeysetPage<T> page(IService<T> service,
+                                         QueryWrapper<T> queryWrapper,
+                                         PageParams pageParams,
+                                         Function<T, Long> idGetter) {
+        return page(service, queryWrapper, pageParams, idGetter, null);
+    }
+
+    /**
+     * 按页码或游标分页查询，结果按 id 升序
+     * <p>
+     * 分页查询本身不执行 COUNT：多查一条判断是否还有下一页，并返回下一页的游标
+     * 带游标时以 id > 游标 的条件查询，不使用 OFFSET，耗时与页数无关
+     * <p>
+     * 需要总数（pageParams.count 为 true）时，总数按查询条件缓存在 countCache 中，过期后才重新 COUNT
+     *
+     * @param service      数据库操作服务
+     * @param queryWrapper 查询条件
+     * @param pageParams   分页参数
+     * @param idGetter     id 获取函数
+     * @param countCache   总数缓存，为 null 时不统计总数
+     * @return 分页结果
+     */
+    public static <T> KeysetPage<T> page(IService<T> service,
+                                         QueryWrapper<T> queryWrapper,
+                                         PageParams pageParams,
+                                         Function<T, Long> idGetter,
+                                         TwoTierCache<Long> countCache) {
+        Long lastId = PageCursor.decode(pageParams.getCursor());
+        long size = pageParams.getSize();
+
+        // 1. 总数，按分页前的查询条件统计
+        // 缓存过期后在后台重新 COUNT，此时 queryWrapper 已追加排序和游标条件，加载函数使用查询条件的副本
+        long total = 0;
+        boolean searchCount = countCache != null && Boolean.TRUE.equals(pageParams.getCount());
+        if (searchCount) {
+            String countKey = countKey(service, queryWrapper);
+            QueryWrapper<T> countWrapper = queryWrapper.clone();
+            Long count = countCache.get(countKey, () -> service.count(countWrapper));
+            total = count == null ? 0 : count;
+        }
+
+        // 2. 多查一条判断是否还有下一页
+        queryWrapper.orderByAsc("id");
+        KeysetPage<T> page;
+        List<T> records;
+        if (lastId == null) {
+            page = new KeysetPage<>(pageParams.getCurrent(), size, total, searchCount);
+            records = service.page(new LookaheadPage<>(page.offset(), size + 1), queryWrapper).getRecords();
+        } else {
+            page = new KeysetPage<>(1, size, total, searchCount);
+            queryWrapper.gt("id", lastId);
+            records = service.page(new LookaheadPage<>(0, size + 1), queryWrapper).getRecords();
+        }
+        if (records.size() > size) {
+            records = new ArrayList<>(records.subList(0, (int) size));
+            page.setNextCursor(PageCursor.encode(idGetter.apply(records.get(records.size() - 1))));
+        }
+        page.setRecords(records);
+        return page;
+    }
+
+    /**
+     * 总数缓存键：表名 + 查询条件 SQL + 参数值
+     */
+    private static <T> String countKey(IService<T> service, QueryWrapper<T> queryWrapper) {
+        StringBuilder predicate = new StringBuilder(queryWrapper.getSqlSegment());
+        Map<String, Object> params = new TreeMap<>(queryWrapper.getParamNameValuePairs());
+        params.forEach((name, value) -> predicate.append('|').append(name).append('=').append(value));
+        return String.format("user-center:count:%s:%s",
+                service.getEntityClass().getSimpleName().toLowerCase(),
+                DigestUtils.md5DigestAsHex(predicate.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 只查询一页数据的分页对象：不执行 COUNT，由分页插件追加 LIMIT offset, size
+     */
+    private static class LookaheadPage<T> extends Page<T> {
+        @Serial
+        private static final long serialVersionUID = 4739201567734913830L;
+
+        private final long offset;
+
+        LookaheadPage(long offset, long size) {
+            super(1, size, false);
+            this.offset = offset;
+        }
+
+        @Override
+        public long offset() {
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.pikachu.usercenter.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+public class TransactionUtils {
+    private TransactionUtils() {
+    }
+
+    /**
+     * 在当前事务提交后执行，事务回滚时不执行；不在事务中时立即执行
+     * 用于同步 Redis 等事务外的数据，避免其它请求读到未提交的修改
+     *
+     * @param action 要执行的操作
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package com.pikachu.usercenter;
 
 import com.pikachu.usercenter.utils.AlgorithmUtils;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
@@ -23,4 +24,21 @@ public class AlgorithmUtilsTest {
         System.out.println(AlgorithmUtils.minDistance(tags1, tags3));
         System.out.println(AlgorithmUtils.minDistance(tags1, tags4));
     }
+
+    @Test
+    void minDistanceWithBound() {
+        int[] tags1 = {0, 1, 2};
+        int[] tags2 = {0, 3, 2};
+        int[] tags3 = {4, 5, 6, 7, 8};
+
+        Assertions.assertEquals(1, AlgorithmUtils.minDistance(tags1, tags2));
+        Assertions.assertEquals(5, AlgorithmUtils.minDistance(tags1, tags3));
+        // 未超过上界时返回真实距离
+        Assertions.assertEquals(1, AlgorithmUtils.minDistance(tags1, tags2, 1));
+        // 超过上界时返回上界 + 1
+        Assertions.assertEquals(3, AlgorithmUtils.minDistance(tags1, tags3, 2));
+        // 与字符串版本结果一致
+        Assertions.assertEquals(AlgorithmUtils.minDistance(List.of("java", "大一", "男"), List.of("java", "大二", "男")),
+                AlgorithmUtils.minDistance(tags1, tags2));
+    }
 }
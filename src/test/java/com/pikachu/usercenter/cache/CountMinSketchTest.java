@@ -0,0 +1,51 @@
+package com.pikachu.usercenter.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 频率估计测试
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class CountMinSketchTest {
+
+    @Test
+    void increment() {
+        CountMinSketch sketch = new CountMinSketch(1024);
+        Assertions.assertEquals(0, sketch.frequency("user-center:user:search-1-5"));
+        Assertions.assertEquals(1, sketch.increment("user-center:user:search-1-5"));
+        Assertions.assertEquals(2, sketch.increment("user-center:user:search-1-5"));
+        Assertions.assertEquals(2, sketch.frequency("user-center:user:search-1-5"));
+    }
+
+    @Test
+    void oneHitWonders() {
+        CountMinSketch sketch = new CountMinSketch(1024);
+        for (int i = 0; i < 5; i++) {
+            sketch.increment("hot");
+        }
+        // 大量只出现一次的键，绝大多数的估计值应保持为 1
+        int overestimated = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (sketch.increment("nickname-" + i) > 1) {
+                overestimated++;
+            }
+        }
+        Assertions.assertTrue(overestimated < 50);
+    }
+
+    @Test
+    void aging() {
+        CountMinSketch sketch = new CountMinSketch(16);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("old");
+        }
+        // 累计增加次数达到表宽的 10 倍后计数减半，旧的热点逐渐冷却
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment(i);
+        }
+        Assertions.assertTrue(sketch.frequency("old") < 100);
+    }
+}
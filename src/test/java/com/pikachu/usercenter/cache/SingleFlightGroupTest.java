@@ -0,0 +1,104 @@
+package com.pikachu.usercenter.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 请求合并测试
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class SingleFlightGroupTest {
+
+    private static final int THREADS = 8;
+
+    private final SingleFlightGroup group = new SingleFlightGroup(null, null, Duration.ZERO, Duration.ZERO);
+
+    @Test
+    void coalesce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> group.execute("user-center:user:search-1-5", () -> {
+                loads.incrementAndGet();
+                entered.countDown();
+                await(release);
+                return "page";
+            })));
+            // 第一个调用进入加载后再发起其余调用，保证它们都与之合并
+            Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < THREADS; i++) {
+                results.add(executor.submit(() -> group.execute("user-center:user:search-1-5", () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            while (group.stats().getCoalesced() < THREADS - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<String> result : results) {
+                Assertions.assertEquals("page", result.get(5, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(1, loads.get());
+            Assertions.assertEquals(1, group.stats().getLoads());
+            Assertions.assertEquals(0, group.stats().getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 加载结束后不再合并
+        Assertions.assertEquals("again", group.execute("user-center:user:search-1-5", () -> "again"));
+        Assertions.assertEquals(2, group.stats().getLoads());
+    }
+
+    @Test
+    void exceptionShared() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> leader = executor.submit(() -> group.execute("team", () -> {
+                entered.countDown();
+                await(release);
+                throw new IllegalStateException("db down");
+            }));
+            Assertions.assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<Object> follower = executor.submit(() -> group.execute("team", () -> "unused"));
+            while (group.stats().getCoalesced() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            for (Future<Object> result : List.of(leader, follower)) {
+                Exception e = Assertions.assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+                Assertions.assertInstanceOf(IllegalStateException.class, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
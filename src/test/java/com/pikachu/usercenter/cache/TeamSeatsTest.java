@@ -0,0 +1,249 @@
+package com.pikachu.usercenter.cache;
+
+import com.pikachu.usercenter.config.TeamConfig;
+import com.pikachu.usercenter.mapper.TeamUserMapper;
+import com.pikachu.usercenter.mapper.UserMapper;
+import com.pikachu.usercenter.model.entity.Team;
+import com.pikachu.usercenter.model.entity.TeamUser;
+import com.pikachu.usercenter.model.entity.User;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 队伍名额脚本测试
+ * 使用 Redis 容器执行真实的 Lua 脚本，数据库以 mock 的 Mapper 代替，事务同步手动触发
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TeamSeatsTest {
+
+    private static final long TEAM_ID = 100L;
+    private static final long CAPTAIN_ID = 1L;
+
+    @Container
+    private static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate stringRedisTemplate;
+
+    private final TeamConfig teamConfig = new TeamConfig();
+    private final List<Long> memberIds = new ArrayList<>();
+    private final Map<Long, Integer> joinedCounts = new HashMap<>();
+    private TeamSeats teamSeats;
+
+    @BeforeAll
+    static void connect() {
+        connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getMappedPort(6379)));
+        connectionFactory.afterPropertiesSet();
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    @AfterAll
+    static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    void setUp() {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+
+        TeamUserMapper teamUserMapper = Mockito.mock(TeamUserMapper.class);
+        Mockito.when(teamUserMapper.selectList(ArgumentMatchers.any())).thenAnswer(invocation ->
+                memberIds.stream().map(memberId -> {
+                    TeamUser teamUser = new TeamUser();
+                    teamUser.setTeamId(TEAM_ID);
+                    teamUser.setUserId(memberId);
+                    return teamUser;
+                }).toList());
+        UserMapper userMapper = Mockito.mock(UserMapper.class);
+        Mockito.when(userMapper.selectById(ArgumentMatchers.any())).thenAnswer(invocation -> {
+            User user = new User();
+            user.setId(invocation.getArgument(0));
+            user.setJoinedTeamCount(joinedCounts.getOrDefault(user.getId(), 0));
+            return user;
+        });
+
+        teamSeats = new TeamSeats();
+        ReflectionTestUtils.setField(teamSeats, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(teamSeats, "teamUserMapper", teamUserMapper);
+        ReflectionTestUtils.setField(teamSeats, "userMapper", userMapper);
+        ReflectionTestUtils.setField(teamSeats, "teamConfig", teamConfig);
+
+        memberIds.add(CAPTAIN_ID);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void full() {
+        Team team = team(3);
+        Assertions.assertEquals(TeamSeats.Result.RESERVED, teamSeats.reserve(team, 2L));
+        Assertions.assertEquals(TeamSeats.Result.RESERVED, teamSeats.reserve(team, 3L));
+        Assertions.assertEquals(TeamSeats.Result.FULL, teamSeats.reserve(team, 4L));
+
+        Assertions.assertEquals(3L, stringRedisTemplate.opsForSet().size(seatsKey()));
+        Assertions.assertEquals("0", joined(4L));
+    }
+
+    @Test
+    void concurrentReservesNeverExceedCapacity() throws Exception {
+        Team team = team(10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<TeamSeats.Result>> tasks = new ArrayList<>();
+            for (long userId = 2; userId < 52; userId++) {
+                long id = userId;
+                tasks.add(() -> {
+                    // 事务同步按线程保存，每个线程模拟各自的事务
+                    TransactionSynchronizationManager.initSynchronization();
+                    try {
+                        return teamSeats.reserve(team, id);
+                    } finally {
+                        TransactionSynchronizationManager.clearSynchronization();
+                    }
+                });
+            }
+            int reserved = 0;
+            int full = 0;
+            for (Future<TeamSeats.Result> result : executor.invokeAll(tasks, 30, TimeUnit.SECONDS)) {
+                switch (result.get()) {
+                    case RESERVED -> reserved++;
+                    case FULL -> full++;
+                    default -> Assertions.fail(result.get().name());
+                }
+            }
+            Assertions.assertEquals(9, reserved);
+            Assertions.assertEquals(41, full);
+            Assertions.assertEquals(10L, stringRedisTemplate.opsForSet().size(seatsKey()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void duplicate() {
+        Team team = team(5);
+        Assertions.assertEquals(TeamSeats.Result.DUPLICATE, teamSeats.reserve(team, CAPTAIN_ID));
+        Assertions.assertEquals(TeamSeats.Result.RESERVED, teamSeats.reserve(team, 2L));
+        Assertions.assertEquals(TeamSeats.Result.DUPLICATE, teamSeats.reserve(team, 2L));
+
+        // 重复加入不再增加已加入的队伍数
+        Assertions.assertEquals("1", joined(2L));
+    }
+
+    @Test
+    void limitExceeded() {
+        teamConfig.setMaxJoinedTeams(2);
+        joinedCounts.put(2L, 2);
+        joinedCounts.put(3L, 1);
+        Team team = team(5);
+
+        Assertions.assertEquals(TeamSeats.Result.LIMIT_EXCEEDED, teamSeats.reserve(team, 2L));
+        Assertions.assertEquals(TeamSeats.Result.RESERVED, teamSeats.reserve(team, 3L));
+        Assertions.assertEquals(TeamSeats.Result.LIMIT_EXCEEDED, teamSeats.reserve(team(5, TEAM_ID + 1), 3L));
+
+        Assertions.assertEquals(Boolean.FALSE, stringRedisTemplate.opsForSet().isMember(seatsKey(), "2"));
+        Assertions.assertEquals("2", joined(2L));
+        Assertions.assertEquals("2", joined(3L));
+    }
+
+    @Test
+    void releaseOnRollback() {
+        Team team = team(5);
+        Assertions.assertEquals(TeamSeats.Result.RESERVED, teamSeats.reserve(team, 2L));
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Assertions.assertEquals(Boolean.FALSE, stringRedisTemplate.opsForSet().isMember(seatsKey(), "2"));
+        Assertions.assertEquals("0", joined(2L));
+
+        // 提交后保留名额
+        Assertions.assertEquals(TeamSeats.Result.RESERVED, teamSeats.reserve(team, 2L));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        Assertions.assertEquals(Boolean.TRUE, stringRedisTemplate.opsForSet().isMember(seatsKey(), "2"));
+        Assertions.assertEquals("1", joined(2L));
+    }
+
+    @Test
+    void rejectedReserveRegistersNothing() {
+        Team team = team(2);
+        Assertions.assertEquals(TeamSeats.Result.RESERVED, teamSeats.reserve(team, 2L));
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        // 未占用名额的请求回滚时不释放其它成员的名额
+        Assertions.assertEquals(TeamSeats.Result.FULL, teamSeats.reserve(team, 3L));
+        Assertions.assertEquals(TeamSeats.Result.DUPLICATE, teamSeats.reserve(team, 2L));
+        Assertions.assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        Assertions.assertEquals(2L, stringRedisTemplate.opsForSet().size(seatsKey()));
+        Assertions.assertEquals("1", joined(2L));
+    }
+
+    /**
+     * 模拟事务结束，触发已注册的同步
+     */
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    private static Team team(int maxNumber) {
+        return team(maxNumber, TEAM_ID);
+    }
+
+    private static Team team(int maxNumber, long teamId) {
+        Team team = new Team();
+        team.setId(teamId);
+        team.setMaxNumber(maxNumber);
+        return team;
+    }
+
+    private static String seatsKey() {
+        return "user-center:team:seats:" + TEAM_ID;
+    }
+
+    private static String joined(long userId) {
+        return stringRedisTemplate.opsForValue().get("user-center:team:joined-count:" + userId);
+    }
+}
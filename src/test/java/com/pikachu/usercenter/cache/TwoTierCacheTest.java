@@ -0,0 +1,217 @@
+package com.pikachu.usercenter.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 两级缓存测试
+ * 时间由可拨动的时钟控制，后台刷新提交到手动执行的线程池，Redis 以按时钟过期的 Map 代替
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class TwoTierCacheTest {
+
+    private static final String KEY = "user-center:user:search-ids-1-10";
+    private static final Duration LOCAL_TTL = Duration.ofSeconds(60);
+    private static final Duration REDIS_TTL = Duration.ofSeconds(3600);
+    private static final Duration SOFT_TTL = Duration.ofSeconds(600);
+
+    private final FakeClock clock = new FakeClock();
+    private final ManualExecutor executor = new ManualExecutor();
+    private final Map<String, Object> redisValues = new HashMap<>();
+    private final Map<String, Long> redisExpireAt = new HashMap<>();
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = Mockito.mock(RedisTemplate.class);
+        ValueOperations<String, Object> ops = Mockito.mock(ValueOperations.class);
+        Mockito.when(redisTemplate.opsForValue()).thenReturn(ops);
+        Mockito.when(ops.get(ArgumentMatchers.anyString())).thenAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            Long expireAt = redisExpireAt.get(key);
+            return expireAt == null || clock.millis() >= expireAt ? null : redisValues.get(key);
+        });
+        Mockito.doAnswer(invocation -> {
+            String key = invocation.getArgument(0);
+            Duration ttl = invocation.getArgument(2);
+            redisValues.put(key, invocation.getArgument(1));
+            redisExpireAt.put(key, clock.millis() + ttl.toMillis());
+            return null;
+        }).when(ops).set(ArgumentMatchers.anyString(), ArgumentMatchers.any(), ArgumentMatchers.any(Duration.class));
+    }
+
+    @Test
+    void admitAfterRepeatedMisses() {
+        TwoTierCache<String> cache = newCache(2);
+        AtomicInteger loads = new AtomicInteger();
+
+        // 第一次未命中只返回加载结果，不写入缓存
+        Assertions.assertEquals("page-1", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+        Assertions.assertTrue(redisValues.isEmpty());
+        Assertions.assertEquals(1, cache.stats().getRejects());
+
+        // 第二次未命中达到准入阈值，写入两级缓存
+        Assertions.assertEquals("page-2", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+        Assertions.assertTrue(redisValues.containsKey(KEY));
+
+        Assertions.assertEquals("page-2", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(1, cache.stats().getLocalHits());
+    }
+
+    @Test
+    void serveStaleAndRefreshInBackground() {
+        TwoTierCache<String> cache = newCache(1).staleWhileRevalidate(SOFT_TTL, executor);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(KEY, () -> "page-" + loads.incrementAndGet());
+
+        // 软过期前直接返回
+        clock.advance(SOFT_TTL.minusSeconds(1));
+        cache.invalidateLocal();
+        Assertions.assertEquals("page-1", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+        Assertions.assertEquals(0, executor.size());
+
+        // 软过期后仍返回旧值，同一个键只提交一个刷新任务
+        clock.advance(Duration.ofSeconds(2));
+        Assertions.assertEquals("page-1", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+        Assertions.assertEquals("page-1", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+        Assertions.assertEquals(1, executor.size());
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(2, cache.stats().getStaleHits());
+
+        executor.runAll();
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(1, cache.stats().getRefreshes());
+        Assertions.assertEquals("page-2", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+
+        // 刷新结束后再次软过期时可以重新提交
+        clock.advance(SOFT_TTL);
+        cache.get(KEY, () -> "page-" + loads.incrementAndGet());
+        Assertions.assertEquals(1, executor.size());
+    }
+
+    @Test
+    void reloadAfterHardExpiry() {
+        TwoTierCache<String> cache = newCache(1).staleWhileRevalidate(SOFT_TTL, executor);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(KEY, () -> "page-" + loads.incrementAndGet());
+
+        // 一级缓存过期后从二级缓存读取
+        clock.advance(LOCAL_TTL.plusSeconds(1));
+        Assertions.assertEquals("page-1", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+        Assertions.assertEquals(1, cache.stats().getRedisHits());
+
+        // 两级都过期后同步加载，不提交后台刷新
+        clock.advance(REDIS_TTL);
+        Assertions.assertEquals("page-2", cache.get(KEY, () -> "page-" + loads.incrementAndGet()));
+        Assertions.assertEquals(0, executor.size());
+        Assertions.assertEquals(2, cache.stats().getRedisMisses());
+    }
+
+    @Test
+    void rejectedRefreshKeepsServingStale() {
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException();
+        };
+        TwoTierCache<String> cache = newCache(1).staleWhileRevalidate(SOFT_TTL, rejecting);
+        cache.get(KEY, () -> "page-1");
+
+        clock.advance(SOFT_TTL.plusSeconds(1));
+        Assertions.assertEquals("page-1", cache.get(KEY, () -> "page-2"));
+        // 被拒绝的刷新不占住键，队列空出后可以再次提交
+        cache.staleWhileRevalidate(SOFT_TTL, executor);
+        Assertions.assertEquals("page-1", cache.get(KEY, () -> "page-2"));
+        Assertions.assertEquals(1, executor.size());
+    }
+
+    @Test
+    void jitterWithinBounds() {
+        for (int i = 0; i < 1000; i++) {
+            long millis = TwoTierCache.jitter(REDIS_TTL, 0.1).toMillis();
+            Assertions.assertTrue(millis <= REDIS_TTL.toMillis());
+            Assertions.assertTrue(millis >= REDIS_TTL.toMillis() * 9 / 10);
+        }
+        Assertions.assertEquals(REDIS_TTL, TwoTierCache.jitter(REDIS_TTL, 0));
+    }
+
+    private TwoTierCache<String> newCache(int admitFrequency) {
+        return new TwoTierCache<>("test", redisTemplate, 100, LOCAL_TTL, REDIS_TTL, admitFrequency,
+                null, false, clock, () -> TimeUnit.MILLISECONDS.toNanos(clock.millis()));
+    }
+
+    /**
+     * 手动拨动的时钟
+     */
+    private static class FakeClock extends Clock {
+        private long millis = 1_700_000_000_000L;
+
+        void advance(Duration duration) {
+            millis += duration.toMillis();
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    /**
+     * 提交后不执行，由测试调用 runAll 执行
+     */
+    private static class ManualExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        int size() {
+            return tasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
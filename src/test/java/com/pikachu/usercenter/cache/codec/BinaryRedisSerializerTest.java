@@ -0,0 +1,143 @@
+package com.pikachu.usercenter.cache.codec;
+
+import com.pikachu.usercenter.cache.CacheEntry;
+import com.pikachu.usercenter.common.KeysetPage;
+import com.pikachu.usercenter.model.entity.Team;
+import com.pikachu.usercenter.model.entity.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 二进制 Redis 值序列化测试
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class BinaryRedisSerializerTest {
+
+    private final BinaryRedisSerializer serializer =
+            new BinaryRedisSerializer(0, BinaryRedisSerializerTest.class.getClassLoader());
+
+    @Test
+    void userPage() {
+        KeysetPage<User> page = new KeysetPage<>(2, 3, 100, true);
+        page.setNextCursor("aWQ6Ng");
+        page.setRecords(List.of(user(4), user(5), user(6)));
+        CacheEntry<KeysetPage<User>> entry = new CacheEntry<>(page, 1700000000000L);
+
+        CacheEntry<?> result = (CacheEntry<?>) serializer.deserialize(serializer.serialize(entry));
+        Assertions.assertEquals(1700000000000L, result.getSoftExpireAt());
+        KeysetPage<?> resultPage = (KeysetPage<?>) result.getValue();
+        Assertions.assertEquals(2, resultPage.getCurrent());
+        Assertions.assertEquals(3, resultPage.getSize());
+        Assertions.assertEquals(100, resultPage.getTotal());
+        Assertions.assertEquals("aWQ6Ng", resultPage.getNextCursor());
+        Assertions.assertEquals(3, resultPage.getRecords().size());
+        for (int i = 0; i < 3; i++) {
+            User expected = user(4 + i);
+            // 密码不写入缓存
+            expected.setPassword(null);
+            Assertions.assertEquals(expected, resultPage.getRecords().get(i));
+        }
+    }
+
+    @Test
+    void userWithNullFields() {
+        User user = new User();
+        user.setId(1L);
+        user.setNickname("皮卡丘");
+        Assertions.assertEquals(user, serializer.deserialize(serializer.serialize(user)));
+    }
+
+    @Test
+    void idPage() {
+        KeysetPage<Long> page = new KeysetPage<>(1, 5, 0, false);
+        page.setRecords(List.of(1L, 300L, 70000L, Long.MAX_VALUE));
+        KeysetPage<?> result = (KeysetPage<?>) serializer.deserialize(serializer.serialize(page));
+        Assertions.assertEquals(page.getRecords(), result.getRecords());
+        Assertions.assertNull(result.getNextCursor());
+        Assertions.assertFalse(result.searchCount());
+    }
+
+    @Test
+    void team() {
+        Team team = new Team();
+        team.setId(7L);
+        team.setName("算法组");
+        team.setDescription("每周一起刷题");
+        team.setMaxNumber(5);
+        team.setMemberCount(3);
+        team.setExpireTime(new Date(1800000000000L));
+        team.setUserId(3L);
+        team.setCreateUserId(3L);
+        team.setStatus(2);
+        team.setPassword("123456");
+        team.setTags(List.of("Java", "算法"));
+        team.setCreateTime(new Date(1700000000000L));
+        team.setIsDelete(false);
+        team.setVersion(4);
+
+        Team result = (Team) serializer.deserialize(serializer.serialize(team));
+        team.setPassword(null);
+        Assertions.assertEquals(team, result);
+    }
+
+    @Test
+    void jdkFallback() {
+        // 未注册的类型使用 JDK 序列化
+        ArrayList<String> list = new ArrayList<>(List.of("a", "b"));
+        Assertions.assertEquals(list, serializer.deserialize(serializer.serialize(list)));
+
+        // 切换前以 JDK 序列化写入的数据
+        byte[] legacy = new JdkSerializationRedisSerializer().serialize(user(1));
+        Assertions.assertEquals(user(1), serializer.deserialize(legacy));
+    }
+
+    @Test
+    void compress() {
+        BinaryRedisSerializer compressing =
+                new BinaryRedisSerializer(64, BinaryRedisSerializerTest.class.getClassLoader());
+        KeysetPage<User> page = new KeysetPage<>(1, 20, 1000, true);
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            users.add(user(i));
+        }
+        page.setRecords(users);
+
+        byte[] plain = serializer.serialize(page);
+        byte[] compressed = compressing.serialize(page);
+        Assertions.assertTrue(compressed.length < plain.length);
+        Assertions.assertEquals(((KeysetPage<?>) serializer.deserialize(plain)).getRecords(),
+                ((KeysetPage<?>) compressing.deserialize(compressed)).getRecords());
+        // 读取不依赖压缩阈值
+        Assertions.assertEquals(20, ((KeysetPage<?>) serializer.deserialize(compressed)).getRecords().size());
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setAccount("account" + id);
+        user.setNickname("用户" + id);
+        user.setAvatarUrl("https://example.com/avatar/" + id + ".png");
+        user.setProfile("喜欢编程和打篮球");
+        user.setGender(id % 2 == 0);
+        user.setAge(18 + (int) id);
+        user.setPassword("e10adc3949ba59abbe56e057f20f883e");
+        user.setPhone("1380000" + id);
+        user.setEmail("user" + id + "@example.com");
+        user.setStatus(0);
+        user.setCreateTime(LocalDateTime.of(2024, 1, 1, 12, 0, 0));
+        user.setUpdateTime(LocalDateTime.of(2024, 1, 2, 12, 30, 15, 123000000));
+        user.setIsDelete(false);
+        user.setRole(0);
+        user.setTags(List.of("Java", "Python", "大一"));
+        user.setJoinedTeamCount((int) id % 3);
+        return user;
+    }
+}
@@ -0,0 +1,84 @@
+package com.pikachu.usercenter.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 近似匹配召回率测试
+ * 使用与 InsertData 相同分布的随机标签，对比 LSH 匹配与精确匹配的结果
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class LshUserMatcherTest {
+
+    private static final int USER_COUNT = 20000;
+    private static final int QUERY_COUNT = 200;
+    private static final int K = 9;
+
+    @Test
+    void recall() {
+        List<String> tags = List.of("男", "女", "Java", "C++", "Go", "前端", "后端", "考研", "春招", "秋招",
+                "社招", "竞赛", "升学", "初级", "中级", "高级", "本科生", "研究生", "待业", "已就业",
+                "乐观", "有点丧", "一般", "已婚", "未婚");
+        UserTagIndex userTagIndex = new UserTagIndex(new TagDictionary(tags));
+        LshUserMatcher lshUserMatcher = new LshUserMatcher(userTagIndex, 8, 4);
+
+        Random random = new Random(7);
+        for (long userId = 1; userId <= USER_COUNT; userId++) {
+            userTagIndex.update(userId, randomTags(tags, random));
+        }
+
+        double idRecall = 0;
+        double distanceRecall = 0;
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            long selfId = 1 + random.nextInt(USER_COUNT);
+            long selfMask = userTagIndex.maskAt(selfId);
+            TopKSelector exact = userTagIndex.match(selfId, selfMask, K);
+            TopKSelector approximate = lshUserMatcher.match(selfId, selfMask, K);
+
+            // 按 id 计算召回率
+            Set<Long> exactIds = new HashSet<>();
+            for (long id : exact.sortedIds()) {
+                exactIds.add(id);
+            }
+            int hit = 0;
+            for (long id : approximate.sortedIds()) {
+                if (exactIds.contains(id)) {
+                    hit++;
+                }
+            }
+            idRecall += (double) hit / K;
+
+            // 距离相同的用户同样好，按距离计算召回率：近似结果中距离不超过精确结果第 K 名的比例
+            int kthDistance = exact.sortedDistances()[K - 1];
+            int good = 0;
+            for (int distance : approximate.sortedDistances()) {
+                if (distance <= kthDistance) {
+                    good++;
+                }
+            }
+            distanceRecall += (double) good / K;
+        }
+        idRecall /= QUERY_COUNT;
+        distanceRecall /= QUERY_COUNT;
+        System.out.printf("LSH recall@%d: id %.3f, distance %.3f%n", K, idRecall, distanceRecall);
+
+        Assertions.assertTrue(distanceRecall >= 0.9);
+    }
+
+    private static List<String> randomTags(List<String> tags, Random random) {
+        Set<String> result = new HashSet<>();
+        int count = random.nextInt(tags.size()) + 1;
+        while (result.size() < count) {
+            result.add(tags.get(random.nextInt(tags.size())));
+        }
+        return new ArrayList<>(result);
+    }
+}
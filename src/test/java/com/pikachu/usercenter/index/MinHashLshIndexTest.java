@@ -0,0 +1,74 @@
+package com.pikachu.usercenter.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * MinHash / LSH 索引测试
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class MinHashLshIndexTest {
+
+    private static final int USER_COUNT = 20000;
+    private static final int QUERY_COUNT = 200;
+    private static final int TAG_COUNT = 25;
+
+    @Test
+    void updateMovesUserBetweenBuckets() {
+        MinHashLshIndex index = new MinHashLshIndex(8, 4, 0x5DEECE66DL);
+        long a = 0b1011L;
+        long b = 0b1100000L;
+        for (int userId = 1; userId <= 100; userId++) {
+            index.update(userId, 0L, a);
+        }
+        // 从桶中间移除的用户不再出现，被交换位置的用户仍可移除
+        index.update(50, a, b);
+        index.update(100, a, 0L);
+        index.update(1, a, 0L);
+
+        Set<Integer> candidates = new HashSet<>();
+        Assertions.assertEquals(97, index.forEachCandidate(a, candidates::add));
+        Assertions.assertFalse(candidates.contains(1));
+        Assertions.assertFalse(candidates.contains(50));
+        Assertions.assertFalse(candidates.contains(100));
+
+        candidates.clear();
+        Assertions.assertEquals(1, index.forEachCandidate(b, candidates::add));
+        Assertions.assertTrue(candidates.contains(50));
+    }
+
+    @Test
+    void candidatesAgainstExactScan() {
+        // 与 LshUserMatcherTest 相同的标签分布，精确匹配每次扫描全部 USER_COUNT 个用户
+        MinHashLshIndex index = new MinHashLshIndex(8, 4, 0x5DEECE66DL);
+        Random random = new Random(7);
+        long[] masks = new long[USER_COUNT + 1];
+        for (int userId = 1; userId <= USER_COUNT; userId++) {
+            int count = random.nextInt(TAG_COUNT) + 1;
+            long mask = 0L;
+            while (Long.bitCount(mask) < count) {
+                mask |= 1L << random.nextInt(TAG_COUNT);
+            }
+            masks[userId] = mask;
+            index.update(userId, 0L, mask);
+        }
+
+        long candidates = 0;
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            candidates += index.forEachCandidate(masks[1 + random.nextInt(USER_COUNT)], id -> {
+            });
+        }
+        double ratio = (double) candidates / QUERY_COUNT / USER_COUNT;
+        System.out.printf("LSH candidates: %.1f per query, %.3f of exact scan%n",
+                (double) candidates / QUERY_COUNT, ratio);
+
+        // 8 * 4 分段下约为全量的 1/5，只减少常数倍的计算量
+        Assertions.assertTrue(ratio < 0.3);
+    }
+}
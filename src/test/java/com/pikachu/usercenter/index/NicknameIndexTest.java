@@ -0,0 +1,65 @@
+package com.pikachu.usercenter.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * 昵称 n-gram 索引测试
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class NicknameIndexTest {
+
+    @Test
+    void candidates() {
+        NicknameIndex nicknameIndex = new NicknameIndex();
+        nicknameIndex.update(1L, "笨蛋皮卡丘");
+        nicknameIndex.update(2L, "皮卡皮卡");
+        nicknameIndex.update(3L, "Pikachu");
+        nicknameIndex.update(4L, "卡皮巴拉");
+
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(1, 2), nicknameIndex.candidates("皮卡"));
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(1), nicknameIndex.candidates("皮卡丘"));
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(1, 2, 4), nicknameIndex.candidates("卡"));
+        // 不区分大小写
+        Assertions.assertEquals(RoaringBitmap.bitmapOf(3), nicknameIndex.candidates("CHU"));
+        Assertions.assertTrue(nicknameIndex.candidates("皮丘").isEmpty());
+        // 包含 LIKE 通配符时不使用索引
+        Assertions.assertNull(nicknameIndex.candidates("皮%"));
+    }
+
+    @Test
+    void rename() {
+        NicknameIndex nicknameIndex = new NicknameIndex();
+        nicknameIndex.update(1L, "小明");
+        nicknameIndex.update(1L, "小红");
+        // 旧昵称独有的片段被移除，共有的片段保留
+        Assertions.assertFalse(nicknameIndex.candidates("小明").contains(1));
+        Assertions.assertFalse(nicknameIndex.candidates("明").contains(1));
+        Assertions.assertTrue(nicknameIndex.candidates("小").contains(1));
+        Assertions.assertTrue(nicknameIndex.candidates("小红").contains(1));
+
+        nicknameIndex.update(1L, "");
+        Assertions.assertTrue(nicknameIndex.candidates("小").isEmpty());
+    }
+
+    @Test
+    void candidatesContainAllMatches() {
+        String[] nicknames = {"abcabc", "bcab", "cabbage", "张三丰", "三张", "a", "𠀀𠀁"};
+        NicknameIndex nicknameIndex = new NicknameIndex();
+        for (int i = 0; i < nicknames.length; i++) {
+            nicknameIndex.update((long) i, nicknames[i]);
+        }
+        String[] keywords = {"ab", "bca", "abc", "cab", "张", "三", "张三", "a", "𠀁", "𠀀𠀁"};
+        for (String keyword : keywords) {
+            RoaringBitmap candidates = nicknameIndex.candidates(keyword);
+            for (int i = 0; i < nicknames.length; i++) {
+                if (nicknames[i].contains(keyword)) {
+                    Assertions.assertTrue(candidates.contains(i), keyword + " " + nicknames[i]);
+                }
+            }
+        }
+    }
+}
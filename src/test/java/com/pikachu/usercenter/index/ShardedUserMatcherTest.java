@@ -0,0 +1,150 @@
+package com.pikachu.usercenter.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 分片匹配测试
+ * 在同一进程中模拟多个节点，通过进程内传输分发查询，对比分片匹配与精确匹配的结果
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class ShardedUserMatcherTest {
+
+    private static final int USER_COUNT = 20000;
+    private static final int QUERY_COUNT = 100;
+    private static final int NODE_COUNT = 3;
+    private static final int K = 9;
+
+    private static final List<String> TAGS = List.of("男", "女", "Java", "C++", "Go", "前端", "后端", "考研",
+            "春招", "秋招", "社招", "竞赛", "升学", "初级", "中级", "高级", "本科生", "研究生", "待业", "已就业",
+            "乐观", "有点丧", "一般", "已婚", "未婚");
+
+    @Test
+    void sameAsExact() {
+        List<String> nodes = new ArrayList<>();
+        List<UserTagIndex> indexes = new ArrayList<>();
+        LoopbackMatchTransport transport = new LoopbackMatchTransport();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            // 奇数节点的标签字典 id 分配不同；偶数节点先设置分片再加载用户，奇数节点加载完再设置
+            List<String> tags = new ArrayList<>(TAGS);
+            if (i % 2 == 1) {
+                Collections.reverse(tags);
+            }
+            UserTagIndex userTagIndex = new UserTagIndex(new TagDictionary(tags));
+            if (i % 2 == 0) {
+                userTagIndex.own(i, NODE_COUNT);
+            }
+            load(userTagIndex);
+            if (i % 2 == 1) {
+                userTagIndex.own(i, NODE_COUNT);
+            }
+            nodes.add("node-" + i);
+            indexes.add(userTagIndex);
+            transport.register("node-" + i, userTagIndex);
+        }
+        ShardedUserMatcher matcher = new ShardedUserMatcher(indexes.get(1), transport, nodes, 1, 1000);
+
+        assertSameAsExact(indexes.get(1), matcher);
+    }
+
+    @Test
+    void nodeDown() {
+        List<String> nodes = List.of("node-0", "node-1", "node-2");
+        UserTagIndex userTagIndex = new UserTagIndex(new TagDictionary(TAGS));
+        load(userTagIndex);
+        userTagIndex.own(0, nodes.size());
+        LoopbackMatchTransport transport = new LoopbackMatchTransport();
+        transport.register("node-0", userTagIndex);
+        // node-2 未注册，其分片由本节点补算
+        ShardedUserMatcher matcher = new ShardedUserMatcher(userTagIndex, transport, nodes, 0, 1000);
+
+        assertSameAsExact(userTagIndex, matcher);
+    }
+
+    /**
+     * 索引未就绪时的数据库回退按 id 顺序逐个打分，结果应与索引的精确匹配一致
+     */
+    @Test
+    void fallbackSameAsExact() {
+        TagDictionary tagDictionary = new TagDictionary(TAGS);
+        UserTagIndex userTagIndex = new UserTagIndex(tagDictionary);
+        List<List<String>> userTags = new ArrayList<>();
+        Random random = new Random(7);
+        for (long userId = 1; userId <= USER_COUNT; userId++) {
+            // 部分用户带有字典外的标签，或只有字典外的标签
+            List<String> tags = new ArrayList<>();
+            int count = random.nextInt(4);
+            for (int j = 0; j < count; j++) {
+                tags.add(TAGS.get(random.nextInt(TAGS.size())));
+            }
+            if (random.nextInt(5) == 0) {
+                tags.add("tag-" + random.nextInt(100));
+            }
+            userTags.add(tags);
+            userTagIndex.update(userId, tags);
+        }
+
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            long selfId = 1 + random.nextInt(USER_COUNT);
+            long selfMask = tagDictionary.maskOf(userTags.get((int) selfId - 1));
+            TopKSelector fallback = new TopKSelector(K);
+            for (long userId = 1; userId <= USER_COUNT; userId++) {
+                long mask = tagDictionary.maskOf(userTags.get((int) userId - 1));
+                if (userId != selfId && mask != 0L) {
+                    fallback.offer(userId, UserTagIndex.distance(mask, selfMask));
+                }
+            }
+            TopKSelector exact = userTagIndex.match(selfId, selfMask, K);
+            Assertions.assertArrayEquals(exact.sortedIds(), fallback.sortedIds());
+            Assertions.assertArrayEquals(exact.sortedDistances(), fallback.sortedDistances());
+        }
+    }
+
+    @Test
+    void shardsCoverAllUsers() {
+        int[] counts = new int[NODE_COUNT];
+        for (long userId = 1; userId <= USER_COUNT; userId++) {
+            counts[UserTagIndex.shardOf(userId, NODE_COUNT)]++;
+        }
+        for (int count : counts) {
+            // 取模后各分片的用户数应大致均匀
+            Assertions.assertTrue(Math.abs(count - USER_COUNT / NODE_COUNT) < USER_COUNT / NODE_COUNT / 10);
+        }
+    }
+
+    private static void assertSameAsExact(UserTagIndex userTagIndex, ShardedUserMatcher matcher) {
+        Random random = new Random(11);
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            long selfId = 1 + random.nextInt(USER_COUNT);
+            long selfMask = userTagIndex.maskAt(selfId);
+            TopKSelector exact = userTagIndex.match(selfId, selfMask, K);
+            TopKSelector sharded = matcher.match(selfId, selfMask, K);
+            Assertions.assertArrayEquals(exact.sortedIds(), sharded.sortedIds());
+            Assertions.assertArrayEquals(exact.sortedDistances(), sharded.sortedDistances());
+        }
+    }
+
+    /**
+     * 各节点使用相同的随机种子，模拟从同一数据库构建出的索引
+     */
+    private static void load(UserTagIndex userTagIndex) {
+        Random random = new Random(7);
+        for (long userId = 1; userId <= USER_COUNT; userId++) {
+            Set<String> tags = new HashSet<>();
+            int count = random.nextInt(TAGS.size()) + 1;
+            while (tags.size() < count) {
+                tags.add(TAGS.get(random.nextInt(TAGS.size())));
+            }
+            userTagIndex.update(userId, new ArrayList<>(tags));
+        }
+    }
+}
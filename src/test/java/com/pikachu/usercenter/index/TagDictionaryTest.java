@@ -0,0 +1,43 @@
+package com.pikachu.usercenter.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 标签字典测试
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class TagDictionaryTest {
+
+    @Test
+    void lookupsNeverAllocate() {
+        TagDictionary tagDictionary = new TagDictionary(List.of("Java", "Go"));
+        List<String> userTags = List.of("java", "Rust", " 考研 ");
+
+        Assertions.assertEquals(1L, tagDictionary.maskOf(userTags));
+        Assertions.assertArrayEquals(new int[]{0, -1, -1}, tagDictionary.idsOf(userTags));
+        Assertions.assertFalse(tagDictionary.inMask("Rust"));
+        Assertions.assertEquals(List.of("Rust", " 考研 "), tagDictionary.unmapped(userTags));
+        Assertions.assertEquals(2, tagDictionary.size());
+    }
+
+    @Test
+    void registerStopsAtMaskBits() {
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < TagDictionary.MASK_BITS + 10; i++) {
+            tags.add("tag-" + i);
+        }
+        TagDictionary tagDictionary = new TagDictionary(List.of("Java"));
+
+        Assertions.assertEquals(TagDictionary.MASK_BITS - 1, tagDictionary.register(tags));
+        Assertions.assertEquals(TagDictionary.MASK_BITS, tagDictionary.size());
+        Assertions.assertEquals(0, tagDictionary.register(tags));
+        Assertions.assertEquals(TagDictionary.MASK_BITS - 1, tagDictionary.find("TAG-62"));
+        Assertions.assertEquals(-1, tagDictionary.find("tag-63"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.pikachu.usercenter.job;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 分层时间轮测试
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class HierarchicalTimingWheelTest {
+
+    @Test
+    void neverFiresEarly() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1000, 8, 0);
+        wheel.add(1500, 1L);
+        Assertions.assertTrue(wheel.advance(1000).isEmpty());
+        Assertions.assertTrue(wheel.advance(1999).isEmpty());
+        Assertions.assertEquals(List.of(1L), wheel.advance(2000));
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void overdueFiresOnNextAdvance() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1000, 8, 10_000);
+        wheel.add(3000, 1L);
+        wheel.add(10_000, 2L);
+        Assertions.assertEquals(2, wheel.size());
+        Assertions.assertEquals(List.of(1L, 2L), wheel.advance(10_000));
+    }
+
+    @Test
+    void cascadesAcrossLevels() {
+        // 每层 8 格，1 小时后到期的任务位于第 3 层，需要逐层降到第 0 层
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(1000, 8, 0);
+        SplittableRandom random = new SplittableRandom(42);
+        long[] deadlines = new long[500];
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = random.nextLong(3_600_000);
+            wheel.add(deadlines[i], (long) i);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now <= 3_601_000; now += 700) {
+            for (Long task : wheel.advance(now)) {
+                long deadline = deadlines[task.intValue()];
+                // 不提前，最多晚一个 tick 加一次推进间隔
+                Assertions.assertTrue(now >= deadline);
+                Assertions.assertTrue(now - deadline < 1700);
+                fired.add(task);
+            }
+        }
+        Assertions.assertEquals(deadlines.length, fired.size());
+        Assertions.assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,109 @@
+package com.pikachu.usercenter.lock;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地分段锁及两级锁测试
+ *
+ * @author 笨蛋皮卡丘
+ * @version 1.0
+ */
+class LockManagerTest {
+
+    private static final String KEY = "user-center:team:teamId-1";
+
+    @Test
+    void stripedMutualExclusion() throws Exception {
+        StripedLockManager lockManager = new StripedLockManager(16);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (LockHandle lock = lockManager.tryLock(KEY, Duration.ZERO)) {
+            Assertions.assertNotNull(lock);
+            // 同一线程可重入
+            try (LockHandle reentrant = lockManager.tryLock(KEY, Duration.ZERO)) {
+                Assertions.assertNotNull(reentrant);
+            }
+            // 其它线程等待超时后获取失败
+            Assertions.assertNull(executor.submit(() -> lockManager.tryLock(KEY, Duration.ofMillis(20)))
+                    .get(5, TimeUnit.SECONDS));
+        }
+        // 释放后其它线程可以获取
+        Assertions.assertTrue(executor.submit(() -> {
+            try (LockHandle lock = lockManager.tryLock(KEY, Duration.ZERO)) {
+                return lock != null;
+            }
+        }).get(5, TimeUnit.SECONDS));
+        executor.shutdownNow();
+    }
+
+    @Test
+    void twoLevelReleasesLocalWhenDistributedFails() throws Exception {
+        StripedLockManager local = new StripedLockManager(16);
+        TwoLevelLockManager lockManager = new TwoLevelLockManager(local, new StubLockManager() {
+            @Override
+            public LockHandle tryLock(String key, Duration wait) {
+                return null;
+            }
+        });
+        Assertions.assertNull(lockManager.tryLock(KEY, Duration.ZERO));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Assertions.assertTrue(executor.submit(() -> {
+            try (LockHandle lock = local.tryLock(KEY, Duration.ZERO)) {
+                return lock != null;
+            }
+        }).get(5, TimeUnit.SECONDS));
+        executor.shutdownNow();
+    }
+
+    @Test
+    void twoLevelLocalContentionSkipsDistributed() throws Exception {
+        AtomicInteger distributedCalls = new AtomicInteger();
+        AtomicInteger distributedReleases = new AtomicInteger();
+        LockManager distributed = new StubLockManager() {
+            @Override
+            public LockHandle tryLock(String key, Duration wait) {
+                distributedCalls.incrementAndGet();
+                return distributedReleases::incrementAndGet;
+            }
+        };
+        TwoLevelLockManager lockManager = new TwoLevelLockManager(new StripedLockManager(16), distributed);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (LockHandle lock = lockManager.tryLock(KEY, Duration.ZERO)) {
+            Assertions.assertNotNull(lock);
+            Assertions.assertNull(executor.submit(() -> lockManager.tryLock(KEY, Duration.ZERO))
+                    .get(5, TimeUnit.SECONDS));
+        }
+        executor.shutdownNow();
+
+        Assertions.assertEquals(1, distributedCalls.get());
+        Assertions.assertEquals(1, distributedReleases.get());
+    }
+
+    @Test
+    void stripedLeaseExpires() throws Exception {
+        StripedLockManager lockManager = new StripedLockManager(16);
+        Assertions.assertTrue(lockManager.tryLease(KEY, Duration.ofMillis(50)));
+        // 租期内获取租约的线程本身也不能再次获取
+        Assertions.assertFalse(lockManager.tryLease(KEY, Duration.ofMillis(50)));
+        Thread.sleep(60);
+        Assertions.assertTrue(lockManager.tryLease(KEY, Duration.ofMillis(50)));
+    }
+
+    /**
+     * 只实现加锁的第二级锁
+     */
+    private abstract static class StubLockManager implements LockManager {
+        @Override
+        public boolean tryLease(String key, Duration lease) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}